@@ -1,6 +1,7 @@
 package application;
 
 import geography.GeographicPoint;
+import roadgraph.LandmarkSelection;
 import util.GraphLoader;
 
 import java.util.HashMap;
@@ -14,6 +15,10 @@ import java.util.Set;
  * @author UCSD MOOC development team
  */
 public class DataSet {
+    private static final String LANDMARKS_EXTENSION = ".landmarks";
+    private static final int LANDMARK_COUNT = 8;
+    private static final String ROAD_SEGMENTS_EXTENSION = ".segments";
+
     String filePath;
     roadgraph.MapGraph graph;
     Set<GeographicPoint> intersections;
@@ -67,6 +72,8 @@ public class DataSet {
         intersections = new HashSet<GeographicPoint>();
         //TODO: change to use intersections for points in graph.
         GraphLoader.loadRoadMap(filePath, graph, roads, intersections);
+        graph.prepareLandmarks(filePath + LANDMARKS_EXTENSION, LANDMARK_COUNT, LandmarkSelection.AVOID);
+        graph.prepareRoadSegments(filePath + ROAD_SEGMENTS_EXTENSION, roads);
     }
 
     public String getFilePath() {
@@ -334,10 +334,34 @@ public class MapApp extends Application
         RadioButton rbB = new RadioButton("BFS");
         rbB.setUserData("BFS");
 
+        RadioButton rbBD = new RadioButton("Bidirectional Dijkstra");
+        rbBD.setUserData("Bidirectional Dijkstra");
+
+        RadioButton rbBA = new RadioButton("Bidirectional A*");
+        rbBA.setUserData("Bidirectional A*");
+
+        RadioButton rbCH = new RadioButton("Contraction Hierarchy");
+        rbCH.setUserData("Contraction Hierarchy");
+
+        RadioButton rbALT = new RadioButton("A* with landmarks (ALT)");
+        rbALT.setUserData("ALT");
+
+        RadioButton rbAR = new RadioButton("Alternative routes");
+        rbAR.setUserData("Alternative routes");
+
+        RadioButton rbIso = new RadioButton("Isochrone around start");
+        rbIso.setUserData("Isochrone");
+
         rbB.setToggleGroup(group);
         rbD.setToggleGroup(group);
         rbA.setToggleGroup(group);
-        return new LinkedList<RadioButton>(Arrays.asList(rbB, rbD, rbA));
+        rbBD.setToggleGroup(group);
+        rbBA.setToggleGroup(group);
+        rbCH.setToggleGroup(group);
+        rbALT.setToggleGroup(group);
+        rbAR.setToggleGroup(group);
+        rbIso.setToggleGroup(group);
+        return new LinkedList<RadioButton>(Arrays.asList(rbB, rbD, rbA, rbBD, rbBA, rbCH, rbALT, rbAR, rbIso));
     }
 
 
@@ -13,6 +13,12 @@ import java.util.List;
 
 public class RouteController {
     // Strings for slider labels
+    public static final int ISOCHRONE = 9;
+    public static final int ALTERNATIVES = 8;
+    public static final int ALT = 7;
+    public static final int CH = 6;
+    public static final int BI_A_STAR = 5;
+    public static final int BI_DIJ = 4;
     public static final int BFS = 3;
     public static final int A_STAR = 2;
     public static final int DIJ = 1;
@@ -120,6 +126,18 @@ public class RouteController {
                 selectedToggle = A_STAR;
             } else if (group.getSelectedToggle().getUserData().equals("BFS")) {
                 selectedToggle = BFS;
+            } else if (group.getSelectedToggle().getUserData().equals("Bidirectional Dijkstra")) {
+                selectedToggle = BI_DIJ;
+            } else if (group.getSelectedToggle().getUserData().equals("Bidirectional A*")) {
+                selectedToggle = BI_A_STAR;
+            } else if (group.getSelectedToggle().getUserData().equals("Contraction Hierarchy")) {
+                selectedToggle = CH;
+            } else if (group.getSelectedToggle().getUserData().equals("ALT")) {
+                selectedToggle = ALT;
+            } else if (group.getSelectedToggle().getUserData().equals("Alternative routes")) {
+                selectedToggle = ALTERNATIVES;
+            } else if (group.getSelectedToggle().getUserData().equals("Isochrone")) {
+                selectedToggle = ISOCHRONE;
             } else {
                 System.err.println("Invalid radio button selection");
             }
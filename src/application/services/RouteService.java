@@ -9,7 +9,10 @@ import gmapsfx.javascript.object.GoogleMap;
 import gmapsfx.javascript.object.LatLong;
 import gmapsfx.javascript.object.LatLongBounds;
 import gmapsfx.javascript.object.MVCArray;
+import gmapsfx.shapes.Polygon;
+import gmapsfx.shapes.PolygonOptions;
 import gmapsfx.shapes.Polyline;
+import gmapsfx.shapes.PolylineOptions;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -18,11 +21,18 @@ import java.util.List;
 import java.util.function.Consumer;
 
 public class RouteService {
+    // alternatives drawn besides the shortest route
+    private static final int MAX_ALTERNATIVES = 2;
+    // road distance budget of the isochrone in km
+    private static final double ISOCHRONE_DISTANCE = 2;
+
     private GoogleMap map;
 
     // static variable
     private MarkerManager markerManager;
     private Polyline routeLine;
+    private Polygon isochroneArea;
+    private List<Polyline> alternativeLines = new ArrayList<>();
     private RouteVisualization rv;
 
     public RouteService(GoogleMapView mapComponent, MarkerManager manager) {
@@ -70,6 +80,8 @@ public class RouteService {
     }
 
     public void hideRoute() {
+        hideAlternativeRoutes();
+        hideIsochrone();
         if (routeLine != null) {
             map.removeMapShape(routeLine);
             if (markerManager.getVisualization() != null) {
@@ -83,6 +95,8 @@ public class RouteService {
 
     public void reset() {
         removeRouteLine();
+        hideAlternativeRoutes();
+        hideIsochrone();
     }
 
     public boolean isRouteDisplayed() {
@@ -94,9 +108,21 @@ public class RouteService {
             if (markerManager.getVisualization() != null) {
                 markerManager.clearVisualization();
             }
+            hideAlternativeRoutes();
+            hideIsochrone();
+
+            if (toggle == RouteController.ALTERNATIVES) {
+                return displayAlternativeRoutes(start, end, MAX_ALTERNATIVES);
+            }
+            if (toggle == RouteController.ISOCHRONE) {
+                displayIsochrone(start, ISOCHRONE_DISTANCE);
+                return true;
+            }
 
             if (toggle == RouteController.DIJ || toggle == RouteController.A_STAR ||
-                    toggle == RouteController.BFS) {
+                    toggle == RouteController.BFS || toggle == RouteController.BI_DIJ ||
+                    toggle == RouteController.BI_A_STAR || toggle == RouteController.CH ||
+                    toggle == RouteController.ALT) {
                 markerManager.initVisualization();
                 Consumer<geography.GeographicPoint> nodeAccepter = markerManager.getVisualization()::acceptPoint;
                 List<geography.GeographicPoint> path = null;
@@ -106,6 +132,14 @@ public class RouteService {
                     path = markerManager.getDataSet().getGraph().dijkstra(start, end, nodeAccepter);
                 } else if (toggle == RouteController.A_STAR) {
                     path = markerManager.getDataSet().getGraph().aStarSearch(start, end, nodeAccepter);
+                } else if (toggle == RouteController.BI_DIJ) {
+                    path = markerManager.getDataSet().getGraph().bidirectionalDijkstra(start, end, nodeAccepter);
+                } else if (toggle == RouteController.BI_A_STAR) {
+                    path = markerManager.getDataSet().getGraph().bidirectionalAStarSearch(start, end, nodeAccepter);
+                } else if (toggle == RouteController.CH) {
+                    path = markerManager.getDataSet().getGraph().contractionHierarchySearch(start, end, nodeAccepter);
+                } else if (toggle == RouteController.ALT) {
+                    path = markerManager.getDataSet().getGraph().altSearch(start, end, nodeAccepter);
                 }
 
                 if (path == null) {
@@ -187,6 +221,87 @@ public class RouteService {
     }
 
 
+    /**
+     * Displays the shortest route together with its alternatives, each as a separate line
+     *
+     * @param maxAlternatives maximal number of alternatives besides the shortest route
+     * @return returns false if no route was found
+     */
+    public boolean displayAlternativeRoutes(geography.GeographicPoint start, geography.GeographicPoint end,
+                                            int maxAlternatives) {
+        hideAlternativeRoutes();
+        List<List<geography.GeographicPoint>> routes =
+                markerManager.getDataSet().getGraph().alternativeRoutes(start, end, maxAlternatives);
+        if (routes.isEmpty()) {
+            MapApp.showInfoAlert("Routing Error : ", "No path found");
+            return false;
+        }
+
+        LatLongBounds bounds = new LatLongBounds();
+        // alternatives are drawn first so the shortest route stays on top
+        for (int i = routes.size() - 1; i >= 0; i--) {
+            MVCArray path = new MVCArray();
+            for (LatLong point : constructMapPath(routes.get(i))) {
+                path.push(point);
+                bounds = bounds.extend(point);
+            }
+            Polyline line = new Polyline(new PolylineOptions()
+                    .path(path)
+                    .strokeColor(i == 0 ? "#1565c0" : "#78909c")
+                    .strokeOpacity(i == 0 ? 1.0 : 0.8)
+                    .strokeWeight(i == 0 ? 5 : 4));
+            map.addMapShape(line);
+            alternativeLines.add(line);
+        }
+        markerManager.hideIntermediateMarkers();
+        markerManager.setSelectMode(false);
+        map.fitBounds(bounds);
+        return true;
+    }
+
+    public void hideAlternativeRoutes() {
+        if (!alternativeLines.isEmpty()) {
+            for (Polyline line : alternativeLines) {
+                map.removeMapShape(line);
+            }
+            alternativeLines.clear();
+            markerManager.restoreMarkers();
+        }
+    }
+
+    /**
+     * Outlines the area reachable from the center within the road distance budget
+     *
+     * @param maxDistance road distance budget in km
+     */
+    public void displayIsochrone(geography.GeographicPoint center, double maxDistance) {
+        hideIsochrone();
+        roadgraph.Isochrone isochrone = markerManager.getDataSet().getGraph().isochrone(center, maxDistance);
+
+        MVCArray path = new MVCArray();
+        LatLongBounds bounds = new LatLongBounds();
+        for (geography.GeographicPoint point : isochrone.getHull()) {
+            LatLong latLong = new LatLong(point.getX(), point.getY());
+            path.push(latLong);
+            bounds = bounds.extend(latLong);
+        }
+        isochroneArea = new Polygon(new PolygonOptions()
+                .paths(path)
+                .strokeColor("#1565c0")
+                .strokeWeight(2)
+                .fillColor("#42a5f5")
+                .fillOpacity(0.25));
+        map.addMapShape(isochroneArea);
+        map.fitBounds(bounds);
+    }
+
+    public void hideIsochrone() {
+        if (isochroneArea != null) {
+            map.removeMapShape(isochroneArea);
+            isochroneArea = null;
+        }
+    }
+
     private void removeRouteLine() {
         if (routeLine != null) {
             map.removeMapShape(routeLine);
@@ -106,6 +106,29 @@ public class RoadSegment {
         return this.length;
     }
 
+    // get the first end point, where the road geometry starts
+    public GeographicPoint getPoint1() {
+        return point1;
+    }
+
+    // get the second end point, where the road geometry ends
+    public GeographicPoint getPoint2() {
+        return point2;
+    }
+
+    // get the intermediate points between the end points, in order from point1
+    public List<GeographicPoint> getGeometryPoints() {
+        return Collections.unmodifiableList(geometryPoints);
+    }
+
+    public String getRoadName() {
+        return roadName;
+    }
+
+    public String getRoadType() {
+        return roadType;
+    }
+
 
     // given one end, return the other.
     public geography.GeographicPoint getOtherPoint(geography.GeographicPoint point) {
@@ -0,0 +1,190 @@
+package roadgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Alternative routes by the plateau method.
+ * <p>
+ * A plateau is a chain of roads lying on both the forward shortest path tree of the
+ * start and the backward shortest path tree of the goal. Every plateau gives a via route:
+ * the tree path from the start to the plateau, the plateau, and the tree path from the
+ * plateau to the goal. Its plateau is a shortest path, which makes long plateaus locally
+ * optimal. Candidates are admissible if their stretch and their sharing with the already
+ * chosen routes are small and their plateau covers enough of their detour, and are chosen
+ * greedily by 2 * length + sharing - plateau length.
+ */
+final class AlternativeRoutes {
+
+    /**
+     * Alternatives may be at most this much longer than the shortest route
+     */
+    private static final double MAX_STRETCH = 1.25;
+    /**
+     * Alternatives may share at most this part of the shortest route length with any chosen route
+     */
+    private static final double MAX_SHARING = 0.8;
+    /**
+     * The plateau must cover at least this part of the length not shared with the shortest route
+     */
+    private static final double MIN_LOCAL_OPTIMALITY = 0.25;
+
+    private final CompactGraph graph;
+    private final ShortestPathTree forward;
+    private final ShortestPathTree backward;
+
+    /**
+     * Builds the forward tree of the start and the backward tree of the goal, which all
+     * candidates are read from
+     */
+    AlternativeRoutes(CompactGraph graph, int from, int to) {
+        this.graph = graph;
+        this.forward = ShortestPathTree.forward(graph, from);
+        this.backward = ShortestPathTree.backward(graph, to);
+    }
+
+    /**
+     * @param maxAlternatives maximal number of alternatives besides the shortest route
+     * @return vertex ids of the shortest route followed by the alternatives in order of
+     * preference, empty if goal is unreachable
+     */
+    List<int[]> find(int maxAlternatives) {
+        List<int[]> routes = new ArrayList<>();
+        int to = backward.root;
+        if (!forward.isReachable(to)) {
+            return routes;
+        }
+        double shortestLength = forward.distances[to];
+        int[] shortest = viaRoute(to);
+        routes.add(shortest);
+        List<Set<Long>> chosenRoads = new ArrayList<>();
+        chosenRoads.add(roads(shortest));
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int start = 0; start < graph.vertexCount(); start++) {
+            if (!forward.isReachable(start) || !backward.isReachable(start)
+                    || isPlateauRoad(forward.parents[start], start) || !isPlateauRoad(start, backward.parents[start])) {
+                continue;
+            }
+            int end = start;
+            while (isPlateauRoad(end, backward.parents[end])) {
+                end = backward.parents[end];
+            }
+            double plateau = forward.distances[end] - forward.distances[start];
+            double length = forward.distances[start] + plateau + backward.distances[end];
+            if (length > MAX_STRETCH * shortestLength) {
+                continue;
+            }
+            int[] vertices = viaRoute(end);
+            if (vertices == null || Arrays.equals(vertices, shortest)) {
+                continue;
+            }
+            double sharing = sharedWeight(vertices, chosenRoads.get(0));
+            if (plateau < MIN_LOCAL_OPTIMALITY * (length - sharing)) {
+                continue;
+            }
+            candidates.add(new Candidate(vertices, 2 * length + sharing - plateau));
+        }
+        candidates.sort((a, b) -> Double.compare(a.objective, b.objective));
+
+        for (Candidate candidate : candidates) {
+            if (routes.size() > maxAlternatives) {
+                break;
+            }
+            boolean distinct = true;
+            for (Set<Long> roads : chosenRoads) {
+                if (sharedWeight(candidate.vertices, roads) > MAX_SHARING * shortestLength) {
+                    distinct = false;
+                    break;
+                }
+            }
+            if (distinct) {
+                routes.add(candidate.vertices);
+                chosenRoads.add(roads(candidate.vertices));
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Returns true if the road from source to target is on both trees
+     */
+    private boolean isPlateauRoad(int source, int target) {
+        return source != ShortestPathTree.NO_VERTEX && target != ShortestPathTree.NO_VERTEX
+                && forward.parents[target] == source && backward.parents[source] == target;
+    }
+
+    /**
+     * Joins the forward tree path to the via vertex and the backward tree path from it.
+     * For the end of a plateau the forward tree path runs over the whole plateau.
+     *
+     * @return the route, or null if the tree paths cross each other
+     */
+    private int[] viaRoute(int via) {
+        int headLength = 0;
+        for (int vertex = via; vertex != forward.root; vertex = forward.parents[vertex]) {
+            headLength++;
+        }
+        int tailLength = 0;
+        for (int vertex = via; vertex != backward.root; vertex = backward.parents[vertex]) {
+            tailLength++;
+        }
+        int[] vertices = new int[headLength + 1 + tailLength];
+        int index = headLength;
+        for (int vertex = via; index >= 0; vertex = forward.parents[vertex]) {
+            vertices[index--] = vertex;
+        }
+        index = headLength;
+        for (int vertex = via; vertex != backward.root; ) {
+            vertex = backward.parents[vertex];
+            vertices[++index] = vertex;
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        for (int vertex : vertices) {
+            if (!visited.add(vertex)) {
+                return null;
+            }
+        }
+        return vertices;
+    }
+
+    private static Set<Long> roads(int[] vertices) {
+        Set<Long> roads = new HashSet<>();
+        for (int i = 0; i + 1 < vertices.length; i++) {
+            roads.add(road(vertices[i], vertices[i + 1]));
+        }
+        return roads;
+    }
+
+    private static long road(int source, int target) {
+        return (long) source << 32 | target;
+    }
+
+    /**
+     * Returns the weight of roads of the route which are also in the given set
+     */
+    private double sharedWeight(int[] vertices, Set<Long> roads) {
+        double shared = 0;
+        for (int i = 0; i + 1 < vertices.length; i++) {
+            if (roads.contains(road(vertices[i], vertices[i + 1]))) {
+                shared += graph.weight(vertices[i], vertices[i + 1]);
+            }
+        }
+        return shared;
+    }
+
+    private static final class Candidate {
+
+        final int[] vertices;
+        final double objective;
+
+        Candidate(int[] vertices, double objective) {
+            this.vertices = vertices;
+            this.objective = objective;
+        }
+    }
+}
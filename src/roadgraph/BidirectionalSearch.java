@@ -0,0 +1,135 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.function.Consumer;
+
+/**
+ * Point to point search growing one tree forward from the start over outgoing roads
+ * and one tree backward from the goal over incoming roads.
+ * <p>
+ * Both searches order their queues by distance plus an average potential
+ * (forward estimate to goal - backward estimate to start) / 2, which keeps reduced
+ * road lengths non-negative in both directions. With zero potentials it is plain
+ * bidirectional Dijkstra. The search stops as soon as the sum of both queue minimums
+ * reaches the best meeting path found so far.
+ */
+final class BidirectionalSearch {
+
+    private static final int NO_VERTEX = -1;
+
+    private final CompactGraph graph;
+    private final int from;
+    private final int to;
+    private final Heuristic toGoal;
+    private final Heuristic toStart;
+
+    /**
+     * @param toGoal  lower bound of distance to the goal, or null for Dijkstra
+     * @param toStart lower bound of distance from the start, or null for Dijkstra
+     */
+    BidirectionalSearch(CompactGraph graph, int from, int to, Heuristic toGoal, Heuristic toStart) {
+        this.graph = graph;
+        this.from = from;
+        this.to = to;
+        this.toGoal = toGoal;
+        this.toStart = toStart;
+    }
+
+    /**
+     * Runs the search
+     *
+     * @param visualiser receives every crossroad settled by either direction
+     * @return vertex ids of the shortest path from start to goal, or null if goal is unreachable
+     */
+    int[] run(Consumer<GeographicPoint> visualiser) {
+        SearchWorkspace forward = graph.forwardWorkspace();
+        SearchWorkspace backward = graph.backwardWorkspace();
+        SearchQueue forwardQueue = forward.queue();
+        SearchQueue backwardQueue = backward.queue();
+
+        forward.reach(from, 0, from);
+        forwardQueue.insertOrDecrease(from, potential(from));
+        backward.reach(to, 0, to);
+        backwardQueue.insertOrDecrease(to, -potential(to));
+
+        double best = from == to ? 0 : Double.POSITIVE_INFINITY;
+        int meeting = from == to ? from : NO_VERTEX;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()
+                && forwardQueue.peekKey() + backwardQueue.peekKey() < best) {
+
+            if (forwardQueue.size() <= backwardQueue.size()) {
+                int current = forwardQueue.extractMin();
+                visualiser.accept(graph.crossroad(current));
+                double currentDistance = forward.distance(current);
+                for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                    int neighbour = graph.outTargets[e];
+                    double distance = currentDistance + graph.outWeights[e];
+                    if (distance < forward.distance(neighbour)) {
+                        forward.reach(neighbour, distance, current);
+                        forwardQueue.insertOrDecrease(neighbour, distance + potential(neighbour));
+                        if (distance + backward.distance(neighbour) < best) {
+                            best = distance + backward.distance(neighbour);
+                            meeting = neighbour;
+                        }
+                    }
+                }
+            } else {
+                int current = backwardQueue.extractMin();
+                visualiser.accept(graph.crossroad(current));
+                double currentDistance = backward.distance(current);
+                for (int e = graph.inOffsets[current]; e < graph.inOffsets[current + 1]; e++) {
+                    int neighbour = graph.inSources[e];
+                    double distance = currentDistance + graph.inWeights[e];
+                    if (distance < backward.distance(neighbour)) {
+                        backward.reach(neighbour, distance, current);
+                        backwardQueue.insertOrDecrease(neighbour, distance - potential(neighbour));
+                        if (distance + forward.distance(neighbour) < best) {
+                            best = distance + forward.distance(neighbour);
+                            meeting = neighbour;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (meeting == NO_VERTEX) {
+            return null;
+        }
+        return joinPaths(meeting, forward, backward);
+    }
+
+    /**
+     * Forward potential of the vertex, backward potential is its negation
+     */
+    private double potential(int vertex) {
+        if (toGoal == null) {
+            return 0;
+        }
+        return (toGoal.estimate(vertex) - toStart.estimate(vertex)) / 2;
+    }
+
+    private int[] joinPaths(int meeting, SearchWorkspace forward, SearchWorkspace backward) {
+        int forwardLength = 0;
+        for (int vertex = meeting; vertex != from; vertex = forward.parent(vertex)) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for (int vertex = meeting; vertex != to; vertex = backward.parent(vertex)) {
+            backwardLength++;
+        }
+
+        int[] path = new int[forwardLength + 1 + backwardLength];
+        int index = forwardLength;
+        for (int vertex = meeting; index >= 0; vertex = forward.parent(vertex)) {
+            path[index--] = vertex;
+        }
+        index = forwardLength;
+        for (int vertex = meeting; vertex != to; ) {
+            vertex = backward.parent(vertex);
+            path[++index] = vertex;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,431 @@
+package roadgraph;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Frozen compressed sparse row (CSR) representation of a {@link MapGraph}.
+ * <p>
+ * Vertices are numbered 0..n-1, outgoing roads of vertex v occupy edge ids
+ * outOffsets[v]..outOffsets[v + 1]-1 of the forward arrays. The reverse arrays hold
+ * the same roads grouped by their ending crossroad, inEdges maps them back to the
+ * forward edge id.
+ * <p>
+ * Weights are road lengths. Views for other {@link CostProfile}s share all arrays but
+ * the weights, so switching profiles needs no rebuild of the graph. Road weight updates
+ * never write to a graph: they copy the weights into a new base graph, so searches keep
+ * a consistent snapshot while updates are published.
+ */
+final class CompactGraph {
+
+    private static final int TREE_CACHE_SIZE = 16;
+
+    /**
+     * Vertex id to crossroad translation
+     */
+    final Crossroad[] crossroads;
+    /**
+     * Latitude and longitude of every vertex in radians, with cosine of latitude
+     * precomputed for great-circle distances
+     */
+    final double[] latitudes;
+    final double[] longitudes;
+    final double[] latitudeCosines;
+    /**
+     * Grid of the vertices for snapping points to their nearest crossroad
+     */
+    final CrossroadGrid grid;
+    /**
+     * Forward CSR: offsets (n + 1), target vertices, weights and source roads (m)
+     */
+    final int[] outOffsets;
+    final int[] outTargets;
+    final double[] outWeights;
+    final Road[] roads;
+    /**
+     * Reverse CSR: offsets (n + 1), source vertices, weights and forward edge ids (m)
+     */
+    final int[] inOffsets;
+    final int[] inSources;
+    final double[] inWeights;
+    final int[] inEdges;
+    /**
+     * Distinct road types interned at build time, the type id of every forward edge and
+     * the length of the longest road of every type
+     */
+    final String[] roadTypes;
+    final int[] outRoadTypes;
+    final double[] maxRoadLengths;
+    /**
+     * Profile of the weights, and the smallest cost per km of any road type, which scales
+     * great-circle distances to lower bounds of the weights
+     */
+    final CostProfile profile;
+    final double minCostPerKm;
+    /**
+     * Search state reused by consecutive queries of the same thread, backward workspaces
+     * serve the second direction of bidirectional searches. Profile views share them.
+     */
+    private final ThreadLocal<SearchWorkspace> forwardWorkspaces;
+    private final ThreadLocal<SearchWorkspace> backwardWorkspaces;
+    /**
+     * Queue type of searches on the workspaces, shared like them
+     */
+    private final AtomicReference<SearchQueueType> queueType;
+    private final Map<CostProfile, CompactGraph> profileViews;
+    /**
+     * Complete forward trees of recent one-to-many queries, carried over to reweighted
+     * copies by repairing them
+     */
+    private final ShortestPathTreeCache trees = new ShortestPathTreeCache(TREE_CACHE_SIZE);
+    /**
+     * Strongly connected components of the open roads, built on first use
+     */
+    private volatile StronglyConnectedComponents components;
+
+    CompactGraph(Collection<Crossroad> vertices) {
+        int n = vertices.size();
+        crossroads = vertices.toArray(new Crossroad[n]);
+
+        latitudes = new double[n];
+        longitudes = new double[n];
+        latitudeCosines = new double[n];
+        int m = 0;
+        for (int v = 0; v < n; v++) {
+            crossroads[v].setId(v);
+            latitudes[v] = Math.toRadians(crossroads[v].getX());
+            longitudes[v] = Math.toRadians(crossroads[v].getY());
+            latitudeCosines[v] = Math.cos(latitudes[v]);
+            m += crossroads[v].getOutRoads().size();
+        }
+        grid = new CrossroadGrid(latitudes, longitudes);
+
+        outOffsets = new int[n + 1];
+        outTargets = new int[m];
+        outWeights = new double[m];
+        roads = new Road[m];
+        outRoadTypes = new int[m];
+        Map<String, Integer> typeIds = new HashMap<>();
+        inOffsets = new int[n + 1];
+        inSources = new int[m];
+        inWeights = new double[m];
+        inEdges = new int[m];
+
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            outOffsets[v] = e;
+            for (Road road : crossroads[v].getOutRoads()) {
+                int to = road.getToCrossroad().getId();
+                outTargets[e] = to;
+                outWeights[e] = road.getLength();
+                roads[e] = road;
+                Integer type = typeIds.get(road.getRoadType());
+                if (type == null) {
+                    type = typeIds.size();
+                    typeIds.put(road.getRoadType(), type);
+                }
+                outRoadTypes[e] = type;
+                inOffsets[to + 1]++;
+                e++;
+            }
+        }
+        outOffsets[n] = e;
+
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] fill = new int[n];
+        for (int v = 0; v < n; v++) {
+            for (int edge = outOffsets[v]; edge < outOffsets[v + 1]; edge++) {
+                int to = outTargets[edge];
+                int slot = inOffsets[to] + fill[to]++;
+                inSources[slot] = v;
+                inWeights[slot] = outWeights[edge];
+                inEdges[slot] = edge;
+            }
+        }
+
+        roadTypes = new String[typeIds.size()];
+        for (Map.Entry<String, Integer> entry : typeIds.entrySet()) {
+            roadTypes[entry.getValue()] = entry.getKey();
+        }
+        maxRoadLengths = new double[roadTypes.length];
+        for (int edge = 0; edge < m; edge++) {
+            maxRoadLengths[outRoadTypes[edge]] = Math.max(maxRoadLengths[outRoadTypes[edge]], outWeights[edge]);
+        }
+        profile = RoutingProfile.DISTANCE;
+        minCostPerKm = 1;
+        forwardWorkspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(n));
+        backwardWorkspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(n));
+        queueType = new AtomicReference<>(SearchQueueType.HEAP);
+        profileViews = new ConcurrentHashMap<>();
+        profileViews.put(RoutingProfile.DISTANCE, this);
+    }
+
+    /**
+     * Profile view of the base graph, weights are computed from road lengths with one
+     * profile lookup per road type
+     */
+    private CompactGraph(CompactGraph base, CostProfile profile) {
+        crossroads = base.crossroads;
+        latitudes = base.latitudes;
+        longitudes = base.longitudes;
+        latitudeCosines = base.latitudeCosines;
+        grid = base.grid;
+        outOffsets = base.outOffsets;
+        outTargets = base.outTargets;
+        roads = base.roads;
+        inOffsets = base.inOffsets;
+        inSources = base.inSources;
+        inEdges = base.inEdges;
+        roadTypes = base.roadTypes;
+        outRoadTypes = base.outRoadTypes;
+        maxRoadLengths = base.maxRoadLengths;
+        forwardWorkspaces = base.forwardWorkspaces;
+        backwardWorkspaces = base.backwardWorkspaces;
+        queueType = base.queueType;
+        profileViews = base.profileViews;
+        this.profile = profile;
+
+        double[] costPerKm = new double[roadTypes.length];
+        double[] penalties = new double[roadTypes.length];
+        double minCost = Double.POSITIVE_INFINITY;
+        for (int type = 0; type < roadTypes.length; type++) {
+            costPerKm[type] = profile.costPerKm(roadTypes[type]);
+            penalties[type] = profile.penalty(roadTypes[type]);
+            if (costPerKm[type] < 0 || penalties[type] < 0 || Double.isNaN(costPerKm[type] + penalties[type])) {
+                throw new IllegalArgumentException("Invalid cost of road type " + roadTypes[type] + " in " + profile);
+            }
+            minCost = Math.min(minCost, costPerKm[type]);
+        }
+        minCostPerKm = minCost == Double.POSITIVE_INFINITY ? 0 : minCost;
+
+        outWeights = new double[outTargets.length];
+        for (int e = 0; e < outWeights.length; e++) {
+            int type = outRoadTypes[e];
+            outWeights[e] = costPerKm[type] == Double.POSITIVE_INFINITY || base.outWeights[e] == Double.POSITIVE_INFINITY
+                    ? Double.POSITIVE_INFINITY : base.outWeights[e] * costPerKm[type] + penalties[type];
+        }
+        inWeights = new double[inSources.length];
+        for (int slot = 0; slot < inWeights.length; slot++) {
+            inWeights[slot] = outWeights[inEdges[slot]];
+        }
+    }
+
+    /**
+     * Copy of the base graph with other road weights, sharing everything but the weights,
+     * their derived values and profile views
+     */
+    private CompactGraph(CompactGraph base, double[] outWeights) {
+        crossroads = base.crossroads;
+        latitudes = base.latitudes;
+        longitudes = base.longitudes;
+        latitudeCosines = base.latitudeCosines;
+        grid = base.grid;
+        outOffsets = base.outOffsets;
+        outTargets = base.outTargets;
+        roads = base.roads;
+        inOffsets = base.inOffsets;
+        inSources = base.inSources;
+        inEdges = base.inEdges;
+        roadTypes = base.roadTypes;
+        outRoadTypes = base.outRoadTypes;
+        forwardWorkspaces = base.forwardWorkspaces;
+        backwardWorkspaces = base.backwardWorkspaces;
+        queueType = base.queueType;
+        profile = RoutingProfile.DISTANCE;
+        minCostPerKm = 1;
+
+        this.outWeights = outWeights;
+        inWeights = new double[inSources.length];
+        for (int slot = 0; slot < inWeights.length; slot++) {
+            inWeights[slot] = outWeights[inEdges[slot]];
+        }
+        maxRoadLengths = new double[roadTypes.length];
+        for (int edge = 0; edge < outWeights.length; edge++) {
+            if (outWeights[edge] != Double.POSITIVE_INFINITY) {
+                maxRoadLengths[outRoadTypes[edge]] = Math.max(maxRoadLengths[outRoadTypes[edge]], outWeights[edge]);
+            }
+        }
+        profileViews = new ConcurrentHashMap<>();
+        profileViews.put(RoutingProfile.DISTANCE, this);
+    }
+
+    /**
+     * Returns a copy of this base graph with the given edges reweighted, this graph stays
+     * unchanged for searches already running on it. Cached trees are repaired for the copy.
+     *
+     * @param edges   forward edge ids
+     * @param weights new weights of the edges, positive infinity closes a road
+     */
+    CompactGraph withWeights(int[] edges, double[] weights) {
+        double[] copy = outWeights.clone();
+        for (int i = 0; i < edges.length; i++) {
+            copy[edges[i]] = weights[i];
+        }
+        CompactGraph graph = new CompactGraph(this, copy);
+        for (ShortestPathTree tree : trees.trees()) {
+            graph.trees.put(tree.repair(this, graph, edges));
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the complete forward shortest path tree of the root, cached for later queries
+     */
+    ShortestPathTree forwardTree(int root) {
+        ShortestPathTree tree = trees.get(root);
+        if (tree == null) {
+            tree = ShortestPathTree.forward(this, root);
+            trees.put(tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the strongly connected components of the roads open in these weights,
+     * computing them on the first call
+     */
+    StronglyConnectedComponents components() {
+        StronglyConnectedComponents result = components;
+        if (result == null) {
+            result = new StronglyConnectedComponents(this);
+            components = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the vertex the forward edge leaves
+     */
+    int edgeSource(int edge) {
+        int low = 0;
+        int high = vertexCount() - 1;
+        // last vertex whose first edge id is not greater than the edge
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (outOffsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns forward edge ids of all roads from source to target
+     */
+    int[] edgesBetween(int source, int target) {
+        int count = 0;
+        for (int e = outOffsets[source]; e < outOffsets[source + 1]; e++) {
+            if (outTargets[e] == target) {
+                count++;
+            }
+        }
+        int[] edges = new int[count];
+        for (int e = outOffsets[source]; e < outOffsets[source + 1]; e++) {
+            if (outTargets[e] == target) {
+                edges[--count] = e;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the weight of the lightest road from source to target, infinity if there is
+     * none
+     */
+    double weight(int source, int target) {
+        double weight = Double.POSITIVE_INFINITY;
+        for (int e = outOffsets[source]; e < outOffsets[source + 1]; e++) {
+            if (outTargets[e] == target) {
+                weight = Math.min(weight, outWeights[e]);
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the view of this graph weighted by the profile, built once per profile
+     */
+    CompactGraph withProfile(CostProfile profile) {
+        CompactGraph view = profileViews.get(profile);
+        if (view == null) {
+            CompactGraph base = profileViews.get(RoutingProfile.DISTANCE);
+            view = profileViews.computeIfAbsent(profile, p -> new CompactGraph(base, p));
+        }
+        return view;
+    }
+
+    /**
+     * Returns the number of vertices
+     */
+    int vertexCount() {
+        return crossroads.length;
+    }
+
+    /**
+     * Returns the number of directed edges
+     */
+    int edgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * Returns the queue type searches on this graph and its views use
+     */
+    SearchQueueType queueType() {
+        return queueType.get();
+    }
+
+    /**
+     * Switches searches on this graph and its views to the queue type, the queue keys of
+     * fixed point types are weights in millimetres
+     */
+    void useQueue(SearchQueueType type) {
+        queueType.set(type);
+    }
+
+    /**
+     * Returns the reset forward search workspace of the current thread
+     */
+    SearchWorkspace forwardWorkspace() {
+        SearchWorkspace workspace = forwardWorkspaces.get();
+        workspace.reset(queueType.get());
+        return workspace;
+    }
+
+    /**
+     * Returns the reset backward search workspace of the current thread
+     */
+    SearchWorkspace backwardWorkspace() {
+        SearchWorkspace workspace = backwardWorkspaces.get();
+        workspace.reset(queueType.get());
+        return workspace;
+    }
+
+    /**
+     * Returns the crossroad with the given vertex id
+     */
+    Crossroad crossroad(int vertex) {
+        return crossroads[vertex];
+    }
+
+    /**
+     * Returns the vertex of the crossroad in this graph, CrossroadGrid.NONE if it is not
+     * one of its vertices. Crossroad ids are those of the latest frozen graph, on an older
+     * one the crossroad is looked up on the grid.
+     */
+    int vertex(Crossroad crossroad) {
+        int id = crossroad.getId();
+        if (id >= 0 && id < vertexCount() && crossroads[id] == crossroad) {
+            return id;
+        }
+        int vertex = grid.nearest(crossroad.getX(), crossroad.getY());
+        return vertex != CrossroadGrid.NONE && crossroads[vertex] == crossroad ? vertex : CrossroadGrid.NONE;
+    }
+}
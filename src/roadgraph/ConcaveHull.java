@@ -0,0 +1,207 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Concave hull of road segments traced on a raster.
+ * <p>
+ * Segments are drawn into a grid of at most RESOLUTION cells per side, which is grown by
+ * one cell so diagonal steps become edge connected, and cells enclosed by the drawn ones
+ * are filled. The outline of the filled cells is then a simple polygon following the
+ * segments at a distance of one or two cells. Unlike point based hulls it does not
+ * degenerate on the collinear crossroads of grid street networks, and its cost is
+ * bounded by the grid size whatever area the segments cover.
+ * <p>
+ * Points are projected to a local plane with longitudes scaled by the cosine of the
+ * mean latitude.
+ */
+final class ConcaveHull {
+
+    private static final int RESOLUTION = 64;
+    /**
+     * Smallest cell side in degrees of latitude, about 10 m, used for tiny areas
+     */
+    private static final double MIN_CELL = 1e-4;
+
+    private static final byte OUTSIDE = 0;
+    private static final byte INSIDE = 1;
+    private static final byte EXTERIOR = 2;
+
+    private ConcaveHull() {
+    }
+
+    /**
+     * @param segments segment ends, segment i goes from point 2i to point 2i+1
+     * @return hull vertices counterclockwise without repeating the first one, empty if
+     * there are no segments
+     */
+    static List<GeographicPoint> compute(List<GeographicPoint> segments) {
+        List<GeographicPoint> hull = new ArrayList<>();
+        if (segments.isEmpty()) {
+            return hull;
+        }
+
+        double meanLatitude = 0;
+        for (GeographicPoint point : segments) {
+            meanLatitude += point.getX();
+        }
+        double scale = Math.cos(Math.toRadians(meanLatitude / segments.size()));
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (GeographicPoint point : segments) {
+            minX = Math.min(minX, point.getY() * scale);
+            maxX = Math.max(maxX, point.getY() * scale);
+            minY = Math.min(minY, point.getX());
+            maxY = Math.max(maxY, point.getX());
+        }
+
+        double cell = Math.max(Math.max(maxX - minX, maxY - minY) / RESOLUTION, MIN_CELL);
+        // two cells of margin keep grown cells off the border, so the exterior surrounds them
+        int width = (int) ((maxX - minX) / cell) + 5;
+        int height = (int) ((maxY - minY) / cell) + 5;
+        double originX = minX - 2 * cell;
+        double originY = minY - 2 * cell;
+
+        byte[] cells = new byte[width * height];
+        for (int i = 0; i + 1 < segments.size(); i += 2) {
+            GeographicPoint from = segments.get(i);
+            GeographicPoint to = segments.get(i + 1);
+            draw(cells, width, height,
+                    (from.getY() * scale - originX) / cell, (from.getX() - originY) / cell,
+                    (to.getY() * scale - originX) / cell, (to.getX() - originY) / cell);
+        }
+        cells = grow(cells, width, height);
+        fillEnclosed(cells, width, height);
+
+        for (int corner : trace(cells, width, height)) {
+            int x = corner % (width + 1);
+            int y = corner / (width + 1);
+            hull.add(new GeographicPoint(originY + y * cell, (originX + x * cell) / scale));
+        }
+        return hull;
+    }
+
+    /**
+     * Marks cells under the segment, sampled every half cell so consecutive samples are
+     * in the same or in adjacent cells. Samples are clamped to the inner cells, rounding
+     * must not push them into the margin.
+     */
+    private static void draw(byte[] cells, int width, int height, double x1, double y1, double x2, double y2) {
+        int steps = (int) Math.ceil(2 * Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1)));
+        for (int step = 0; step <= steps; step++) {
+            double t = steps == 0 ? 0 : (double) step / steps;
+            int x = Math.max(2, Math.min(width - 3, (int) (x1 + (x2 - x1) * t)));
+            int y = Math.max(2, Math.min(height - 3, (int) (y1 + (y2 - y1) * t)));
+            cells[y * width + x] = INSIDE;
+        }
+    }
+
+    /**
+     * Marks all eight neighbours of marked cells
+     */
+    private static byte[] grow(byte[] cells, int width, int height) {
+        byte[] grown = new byte[cells.length];
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                if (cells[y * width + x] == INSIDE) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            grown[(y + dy) * width + x + dx] = INSIDE;
+                        }
+                    }
+                }
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * Flood fills the exterior from the border over edge adjacent cells and marks every
+     * other cell, so marked cells have no holes and no corner-only contacts
+     */
+    private static void fillEnclosed(byte[] cells, int width, int height) {
+        int[] stack = new int[cells.length];
+        int size = 0;
+        cells[0] = EXTERIOR;
+        stack[size++] = 0;
+        while (size > 0) {
+            int current = stack[--size];
+            int x = current % width;
+            int y = current / width;
+            if (x > 0 && cells[current - 1] == OUTSIDE) {
+                cells[current - 1] = EXTERIOR;
+                stack[size++] = current - 1;
+            }
+            if (x < width - 1 && cells[current + 1] == OUTSIDE) {
+                cells[current + 1] = EXTERIOR;
+                stack[size++] = current + 1;
+            }
+            if (y > 0 && cells[current - width] == OUTSIDE) {
+                cells[current - width] = EXTERIOR;
+                stack[size++] = current - width;
+            }
+            if (y < height - 1 && cells[current + width] == OUTSIDE) {
+                cells[current + width] = EXTERIOR;
+                stack[size++] = current + width;
+            }
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = cells[i] == EXTERIOR ? OUTSIDE : INSIDE;
+        }
+    }
+
+    /**
+     * Follows cell sides between marked and unmarked cells with marked cells on the left.
+     * Without holes and corner-only contacts every corner has at most one outgoing side,
+     * so the sides form a single loop.
+     *
+     * @return grid corners where the loop turns, corner (x, y) is y * (width + 1) + x
+     */
+    private static List<Integer> trace(byte[] cells, int width, int height) {
+        int[] next = new int[(width + 1) * (height + 1)];
+        Arrays.fill(next, -1);
+        int start = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (cells[y * width + x] != INSIDE) {
+                    continue;
+                }
+                int bottomLeft = y * (width + 1) + x;
+                int bottomRight = bottomLeft + 1;
+                int topLeft = bottomLeft + width + 1;
+                int topRight = topLeft + 1;
+                if (cells[(y - 1) * width + x] != INSIDE) {
+                    next[bottomLeft] = bottomRight;
+                    start = bottomLeft;
+                }
+                if (cells[y * width + x + 1] != INSIDE) {
+                    next[bottomRight] = topRight;
+                }
+                if (cells[(y + 1) * width + x] != INSIDE) {
+                    next[topRight] = topLeft;
+                }
+                if (cells[y * width + x - 1] != INSIDE) {
+                    next[topLeft] = bottomLeft;
+                }
+            }
+        }
+
+        List<Integer> loop = new ArrayList<>();
+        if (start < 0) {
+            return loop;
+        }
+        int corner = start;
+        do {
+            int previous = corner;
+            corner = next[corner];
+            if (next[corner] - corner != corner - previous) {
+                loop.add(corner);
+            }
+        } while (corner != start);
+        return loop;
+    }
+}
@@ -0,0 +1,561 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchies over a frozen {@link CompactGraph}.
+ * <p>
+ * Preprocessing contracts vertices in rounds. Every round picks an independent set of
+ * vertices whose edge difference priority is a local minimum among their neighbours,
+ * runs the witness searches of the whole set in parallel and then adds the shortcuts
+ * sequentially. Witness searches avoid every vertex of the current round, so
+ * contracting the set at once keeps all distances between the remaining vertices.
+ * <p>
+ * Queries run a bidirectional Dijkstra that only follows arcs to higher ranked
+ * vertices and unpack the shortcuts of the meeting path back to original crossroads.
+ */
+final class ContractionHierarchy {
+
+    private static final int NO_VERTEX = -1;
+    /**
+     * Witness searches give up after settling this many vertices and keep the shortcut
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CompactGraph graph;
+    /**
+     * Contraction order of every vertex
+     */
+    private final int[] ranks;
+    /**
+     * Arcs to higher ranked vertices grouped by their lower source: offsets, targets,
+     * weights and contracted middle vertex (NO_VERTEX for original roads)
+     */
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddles;
+    /**
+     * Arcs from higher ranked vertices grouped by their lower target: offsets, sources,
+     * weights and contracted middle vertex
+     */
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downMiddles;
+
+    private ContractionHierarchy(CompactGraph graph, int[] ranks, Arcs[] outArcs) {
+        this.graph = graph;
+        this.ranks = ranks;
+        int n = graph.vertexCount();
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            Arcs arcs = outArcs[u];
+            for (int i = 0; i < arcs.size; i++) {
+                int w = arcs.vertices[i];
+                if (ranks[w] > ranks[u]) {
+                    upOffsets[u + 1]++;
+                } else {
+                    downOffsets[w + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+
+        upTargets = new int[upOffsets[n]];
+        upWeights = new double[upOffsets[n]];
+        upMiddles = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new double[downOffsets[n]];
+        downMiddles = new int[downOffsets[n]];
+
+        int[] upFill = Arrays.copyOf(upOffsets, n);
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int u = 0; u < n; u++) {
+            Arcs arcs = outArcs[u];
+            for (int i = 0; i < arcs.size; i++) {
+                int w = arcs.vertices[i];
+                if (ranks[w] > ranks[u]) {
+                    int slot = upFill[u]++;
+                    upTargets[slot] = w;
+                    upWeights[slot] = arcs.weights[i];
+                    upMiddles[slot] = arcs.middles[i];
+                } else {
+                    int slot = downFill[w]++;
+                    downSources[slot] = u;
+                    downWeights[slot] = arcs.weights[i];
+                    downMiddles[slot] = arcs.middles[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Contracts all vertices of the graph, witness searches and priority updates run
+     * in parallel on the common fork-join pool
+     */
+    static ContractionHierarchy build(CompactGraph graph) {
+        return new Contraction(graph).run();
+    }
+
+    /**
+     * Returns the frozen graph the hierarchy was built for, vertex ids of searches refer to it
+     */
+    CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of arcs, original roads and shortcuts, kept in the hierarchy
+     */
+    int arcCount() {
+        return upTargets.length + downSources.length;
+    }
+
+    /**
+     * Finds the shortest path with a bidirectional upward search
+     *
+     * @param visualiser receives every crossroad settled by either direction
+     * @return vertex ids of the shortest path from start to goal, or null if goal is unreachable
+     */
+    int[] search(int from, int to, Consumer<GeographicPoint> visualiser) {
+        SearchWorkspace forward = graph.forwardWorkspace();
+        SearchWorkspace backward = graph.backwardWorkspace();
+        SearchQueue forwardQueue = forward.queue();
+        SearchQueue backwardQueue = backward.queue();
+
+        // parents of both directions hold the arc a vertex was reached by
+        forward.reach(from, 0, NO_VERTEX);
+        forwardQueue.insertOrDecrease(from, 0);
+        backward.reach(to, 0, NO_VERTEX);
+        backwardQueue.insertOrDecrease(to, 0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = NO_VERTEX;
+
+        for (; ; ) {
+            boolean forwardActive = !forwardQueue.isEmpty() && forwardQueue.peekKey() < best;
+            boolean backwardActive = !backwardQueue.isEmpty() && backwardQueue.peekKey() < best;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            if (forwardActive && (!backwardActive || forwardQueue.peekKey() <= backwardQueue.peekKey())) {
+                int current = forwardQueue.extractMin();
+                visualiser.accept(graph.crossroad(current));
+                double currentDistance = forward.distance(current);
+                if (currentDistance + backward.distance(current) < best) {
+                    best = currentDistance + backward.distance(current);
+                    meeting = current;
+                }
+                for (int arc = upOffsets[current]; arc < upOffsets[current + 1]; arc++) {
+                    int neighbour = upTargets[arc];
+                    double distance = currentDistance + upWeights[arc];
+                    if (distance < forward.distance(neighbour)) {
+                        forward.reach(neighbour, distance, arc);
+                        forwardQueue.insertOrDecrease(neighbour, distance);
+                    }
+                }
+            } else {
+                int current = backwardQueue.extractMin();
+                visualiser.accept(graph.crossroad(current));
+                double currentDistance = backward.distance(current);
+                if (currentDistance + forward.distance(current) < best) {
+                    best = currentDistance + forward.distance(current);
+                    meeting = current;
+                }
+                for (int arc = downOffsets[current]; arc < downOffsets[current + 1]; arc++) {
+                    int neighbour = downSources[arc];
+                    double distance = currentDistance + downWeights[arc];
+                    if (distance < backward.distance(neighbour)) {
+                        backward.reach(neighbour, distance, arc);
+                        backwardQueue.insertOrDecrease(neighbour, distance);
+                    }
+                }
+            }
+        }
+
+        if (meeting == NO_VERTEX) {
+            return null;
+        }
+        return unpackPath(from, to, meeting, forward, backward);
+    }
+
+    /**
+     * Settles the whole upward search space of the root, forward over arcs to higher
+     * ranked vertices or backward over arcs from them. Settled vertices are written to
+     * the workspace vertex queue in settling order, their distances stay in the workspace.
+     *
+     * @param workspace reset workspace of the current thread
+     * @return the number of settled vertices
+     */
+    int upwardSearch(int root, boolean backward, SearchWorkspace workspace) {
+        int[] offsets = backward ? downOffsets : upOffsets;
+        int[] neighbours = backward ? downSources : upTargets;
+        double[] weights = backward ? downWeights : upWeights;
+        int[] settled = workspace.vertexQueue();
+        SearchQueue queue = workspace.queue();
+
+        int count = 0;
+        workspace.reach(root, 0, NO_VERTEX);
+        queue.insertOrDecrease(root, 0);
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            settled[count++] = current;
+            double currentDistance = workspace.distance(current);
+            for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                int neighbour = neighbours[arc];
+                double distance = currentDistance + weights[arc];
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, arc);
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int[] unpackPath(int from, int to, int meeting, SearchWorkspace forward, SearchWorkspace backward) {
+        List<Integer> upwardArcs = new ArrayList<>();
+        int vertex = meeting;
+        while (vertex != from) {
+            int arc = forward.parent(vertex);
+            upwardArcs.add(arc);
+            vertex = upSource(arc);
+        }
+
+        IntList path = new IntList();
+        path.add(from);
+        for (int i = upwardArcs.size() - 1; i >= 0; i--) {
+            int arc = upwardArcs.get(i);
+            unpack(upSource(arc), upTargets[arc], upMiddles[arc], path);
+        }
+        vertex = meeting;
+        while (vertex != to) {
+            int arc = backward.parent(vertex);
+            int target = downTarget(arc);
+            unpack(vertex, target, downMiddles[arc], path);
+            vertex = target;
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Appends the original vertices of arc from..to, excluding from, to the path
+     */
+    private void unpack(int from, int to, int middle, IntList path) {
+        if (middle == NO_VERTEX) {
+            path.add(to);
+            return;
+        }
+        // middle was contracted before both ends, so from->middle is a downward arc
+        // of middle and middle->to is an upward arc of middle
+        int down = findArc(downOffsets, downSources, middle, from);
+        unpack(from, middle, downMiddles[down], path);
+        int up = findArc(upOffsets, upTargets, middle, to);
+        unpack(middle, to, upMiddles[up], path);
+    }
+
+    private static int findArc(int[] offsets, int[] vertices, int owner, int other) {
+        for (int arc = offsets[owner]; arc < offsets[owner + 1]; arc++) {
+            if (vertices[arc] == other) {
+                return arc;
+            }
+        }
+        throw new IllegalStateException("Arc " + owner + "-" + other + " not found in hierarchy");
+    }
+
+    private int upSource(int arc) {
+        return owner(upOffsets, arc);
+    }
+
+    private int downTarget(int arc) {
+        return owner(downOffsets, arc);
+    }
+
+    /**
+     * Returns vertex owning the CSR slot
+     */
+    private static int owner(int[] offsets, int arc) {
+        int index = Arrays.binarySearch(offsets, arc);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // skip vertices without arcs which share the same offset
+        while (offsets[index + 1] == arc) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Mutable adjacency of one vertex during contraction: neighbour, weight and middle vertex
+     */
+    private static final class Arcs {
+        private int[] vertices = new int[4];
+        private double[] weights = new double[4];
+        private int[] middles = new int[4];
+        private int size;
+
+        int indexOf(int vertex) {
+            for (int i = 0; i < size; i++) {
+                if (vertices[i] == vertex) {
+                    return i;
+                }
+            }
+            return NO_VERTEX;
+        }
+
+        /**
+         * Adds arc or lowers weight of an existing one to the same vertex
+         */
+        void addOrDecrease(int vertex, double weight, int middle) {
+            int index = indexOf(vertex);
+            if (index == NO_VERTEX) {
+                if (size == vertices.length) {
+                    vertices = Arrays.copyOf(vertices, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                    middles = Arrays.copyOf(middles, size * 2);
+                }
+                vertices[size] = vertex;
+                weights[size] = weight;
+                middles[size] = middle;
+                size++;
+            } else if (weight < weights[index]) {
+                weights[index] = weight;
+                middles[index] = middle;
+            }
+        }
+    }
+
+    /**
+     * Shortcut found for a contracted vertex
+     */
+    private static final class Shortcut {
+        private final int from;
+        private final int to;
+        private final double weight;
+        private final int middle;
+
+        Shortcut(int from, int to, double weight, int middle) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.middle = middle;
+        }
+    }
+
+    /**
+     * State of a running preprocessing
+     */
+    private static final class Contraction {
+        private final CompactGraph graph;
+        private final int n;
+        private final Arcs[] outArcs;
+        private final Arcs[] inArcs;
+        private final boolean[] contracted;
+        /**
+         * Vertices contracted in the current round, witness paths must avoid them
+         */
+        private final boolean[] contracting;
+        private final int[] contractedNeighbours;
+        private final int[] priorities;
+        private final int[] ranks;
+        private final ThreadLocal<SearchWorkspace> witnessWorkspaces;
+
+        Contraction(CompactGraph graph) {
+            this.graph = graph;
+            this.n = graph.vertexCount();
+            outArcs = new Arcs[n];
+            inArcs = new Arcs[n];
+            for (int v = 0; v < n; v++) {
+                outArcs[v] = new Arcs();
+                inArcs[v] = new Arcs();
+            }
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; e++) {
+                    int w = graph.outTargets[e];
+                    // closed roads are left out, shortcuts over them would never be used
+                    if (w != u && graph.outWeights[e] != Double.POSITIVE_INFINITY) {
+                        outArcs[u].addOrDecrease(w, graph.outWeights[e], NO_VERTEX);
+                        inArcs[w].addOrDecrease(u, graph.outWeights[e], NO_VERTEX);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            contracting = new boolean[n];
+            contractedNeighbours = new int[n];
+            priorities = new int[n];
+            ranks = new int[n];
+            witnessWorkspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(n));
+        }
+
+        ContractionHierarchy run() {
+            IntStream.range(0, n).parallel().forEach(v -> priorities[v] = priority(v));
+
+            int[] remaining = IntStream.range(0, n).toArray();
+            int rank = 0;
+            while (remaining.length > 0) {
+                int[] independent = Arrays.stream(remaining).parallel()
+                        .filter(this::isLocalMinimum)
+                        .toArray();
+                for (int v : independent) {
+                    contracting[v] = true;
+                }
+
+                List<List<Shortcut>> shortcuts = Arrays.stream(independent).parallel()
+                        .mapToObj(this::shortcuts)
+                        .collect(Collectors.toList());
+
+                for (int i = 0; i < independent.length; i++) {
+                    int v = independent[i];
+                    contracting[v] = false;
+                    contracted[v] = true;
+                    ranks[v] = rank++;
+                    for (Shortcut shortcut : shortcuts.get(i)) {
+                        outArcs[shortcut.from].addOrDecrease(shortcut.to, shortcut.weight, shortcut.middle);
+                        inArcs[shortcut.to].addOrDecrease(shortcut.from, shortcut.weight, shortcut.middle);
+                    }
+                }
+
+                boolean[] touched = new boolean[n];
+                for (int v : independent) {
+                    touchNeighbours(outArcs[v], touched);
+                    touchNeighbours(inArcs[v], touched);
+                }
+                IntStream.range(0, n).parallel()
+                        .filter(v -> touched[v])
+                        .forEach(v -> priorities[v] = priority(v));
+
+                remaining = Arrays.stream(remaining).filter(v -> !contracted[v]).toArray();
+            }
+            return new ContractionHierarchy(graph, ranks, outArcs);
+        }
+
+        private void touchNeighbours(Arcs arcs, boolean[] touched) {
+            for (int i = 0; i < arcs.size; i++) {
+                int neighbour = arcs.vertices[i];
+                if (!contracted[neighbour] && !touched[neighbour]) {
+                    touched[neighbour] = true;
+                    contractedNeighbours[neighbour]++;
+                }
+            }
+        }
+
+        /**
+         * Vertex is contracted in this round if it precedes all remaining neighbours
+         */
+        private boolean isLocalMinimum(int v) {
+            return precedesNeighbours(v, outArcs[v]) && precedesNeighbours(v, inArcs[v]);
+        }
+
+        private boolean precedesNeighbours(int v, Arcs arcs) {
+            for (int i = 0; i < arcs.size; i++) {
+                int neighbour = arcs.vertices[i];
+                if (contracted[neighbour]) {
+                    continue;
+                }
+                if (priorities[neighbour] < priorities[v]
+                        || priorities[neighbour] == priorities[v] && neighbour < v) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Edge difference of contracting the vertex plus the number of its already
+         * contracted neighbours, which spreads contraction evenly over the map
+         */
+        private int priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < outArcs[v].size; i++) {
+                if (!contracted[outArcs[v].vertices[i]]) {
+                    removed++;
+                }
+            }
+            for (int i = 0; i < inArcs[v].size; i++) {
+                if (!contracted[inArcs[v].vertices[i]]) {
+                    removed++;
+                }
+            }
+            return shortcuts(v).size() - removed + contractedNeighbours[v];
+        }
+
+        /**
+         * Returns shortcuts which keep distances between neighbours of the vertex when it is removed
+         */
+        private List<Shortcut> shortcuts(int v) {
+            List<Shortcut> result = new ArrayList<>();
+            Arcs in = inArcs[v];
+            Arcs out = outArcs[v];
+            SearchWorkspace witness = witnessWorkspaces.get();
+
+            for (int i = 0; i < in.size; i++) {
+                int from = in.vertices[i];
+                if (contracted[from]) {
+                    continue;
+                }
+                double limit = 0;
+                for (int j = 0; j < out.size; j++) {
+                    int to = out.vertices[j];
+                    if (!contracted[to] && to != from) {
+                        limit = Math.max(limit, in.weights[i] + out.weights[j]);
+                    }
+                }
+                witnessSearch(witness, from, v, limit);
+
+                for (int j = 0; j < out.size; j++) {
+                    int to = out.vertices[j];
+                    if (contracted[to] || to == from) {
+                        continue;
+                    }
+                    double viaVertex = in.weights[i] + out.weights[j];
+                    if (witness.distance(to) > viaVertex) {
+                        result.add(new Shortcut(from, to, viaVertex, v));
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Local Dijkstra from the vertex over remaining vertices, bounded by distance
+         * and settled vertex count
+         */
+        private void witnessSearch(SearchWorkspace witness, int from, int avoided, double limit) {
+            witness.reset();
+            SearchQueue queue = witness.queue();
+            witness.reach(from, 0, NO_VERTEX);
+            queue.insertOrDecrease(from, 0);
+
+            int settled = 0;
+            while (!queue.isEmpty() && queue.peekKey() <= limit && settled++ < WITNESS_SETTLE_LIMIT) {
+                int current = queue.extractMin();
+                Arcs arcs = outArcs[current];
+                for (int i = 0; i < arcs.size; i++) {
+                    int neighbour = arcs.vertices[i];
+                    if (neighbour == avoided || contracted[neighbour] || contracting[neighbour]) {
+                        continue;
+                    }
+                    double distance = witness.distance(current) + arcs.weights[i];
+                    if (distance < witness.distance(neighbour)) {
+                        witness.reach(neighbour, distance, current);
+                        queue.insertOrDecrease(neighbour, distance);
+                    }
+                }
+            }
+        }
+    }
+}
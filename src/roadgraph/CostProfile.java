@@ -0,0 +1,26 @@
+package roadgraph;
+
+/**
+ * Cost model of roads by their type, used as search weights instead of road lengths.
+ * <p>
+ * Profiles are only asked once per distinct road type when their weights are built,
+ * searches then read precomputed weights.
+ */
+public interface CostProfile {
+
+    /**
+     * Returns the cost of one km of road of the type, positive infinity forbids the road
+     *
+     * @param roadType road type such as "motorway" or "residential"
+     */
+    double costPerKm(String roadType);
+
+    /**
+     * Returns the fixed cost of taking a road of the type, added whatever its length
+     *
+     * @param roadType road type such as "motorway" or "residential"
+     */
+    default double penalty(String roadType) {
+        return 0;
+    }
+}
@@ -21,6 +21,10 @@ class Crossroad extends GeographicPoint {
      * Set of incoming roads
      */
     private Set<Road> outRoads = EMPTY_SET;
+    /**
+     * Vertex id in the frozen {@link CompactGraph}, -1 until the graph is frozen
+     */
+    private int id = -1;
 
     Crossroad(double latitude, double longitude) {
         super(latitude, longitude);
@@ -30,10 +34,15 @@ class Crossroad extends GeographicPoint {
         this(location.getX(), location.getY());
     }
 
-    protected Crossroad(Crossroad crossroad) {
-        this((GeographicPoint) crossroad);
-        inRoads = crossroad.getInRoads();
-        outRoads = crossroad.getOutRoads();
+    /**
+     * Returns vertex id assigned by the last {@link CompactGraph} built over this crossroad
+     */
+    int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
     }
 
     /**
@@ -0,0 +1,211 @@
+package roadgraph;
+
+/**
+ * Uniform grid over the crossroads for nearest neighbour queries on raw coordinates.
+ * <p>
+ * Crossroads are projected equirectangularly around the middle latitude of the map,
+ * which at city scale keeps distances within a fraction of a percent of great-circle
+ * ones, and bucketed into square cells of about {@link #VERTICES_PER_CELL} crossroads
+ * each, packed like a CSR graph. A query scans rings of cells around the cell of the
+ * point until no unscanned cell can be closer than the k-th nearest crossroad found.
+ */
+final class CrossroadGrid {
+
+    private static final int VERTICES_PER_CELL = 2;
+    private static final double EARTH_RADIUS = 6373;
+    static final int NONE = -1;
+
+    /**
+     * Projected coordinates of every vertex in km
+     */
+    private final double[] xs;
+    private final double[] ys;
+    private final double cosine;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    /**
+     * Cell c, of row c / columns and column c % columns, holds the vertices
+     * cellVertices[cellOffsets[c]..cellOffsets[c + 1]-1]
+     */
+    private final int[] cellOffsets;
+    private final int[] cellVertices;
+
+    /**
+     * @param latitudes  latitude of every vertex in radians
+     * @param longitudes longitude of every vertex in radians
+     */
+    CrossroadGrid(double[] latitudes, double[] longitudes) {
+        int n = latitudes.length;
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        for (double latitude : latitudes) {
+            minLatitude = Math.min(minLatitude, latitude);
+            maxLatitude = Math.max(maxLatitude, latitude);
+        }
+        cosine = n == 0 ? 1 : Math.cos((minLatitude + maxLatitude) / 2);
+
+        xs = new double[n];
+        ys = new double[n];
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY;
+        double highY = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            xs[v] = projectX(longitudes[v]);
+            ys[v] = projectY(latitudes[v]);
+            lowX = Math.min(lowX, xs[v]);
+            lowY = Math.min(lowY, ys[v]);
+            highX = Math.max(highX, xs[v]);
+            highY = Math.max(highY, ys[v]);
+        }
+        minX = n == 0 ? 0 : lowX;
+        minY = n == 0 ? 0 : lowY;
+        double width = n == 0 ? 0 : highX - lowX;
+        double height = n == 0 ? 0 : highY - lowY;
+        // the second bound keeps the cell count linear for maps stretched along a line
+        double size = Math.max(Math.sqrt(width * height * VERTICES_PER_CELL / Math.max(n, 1)),
+                Math.max(width, height) / (2.0 * Math.max(n, 1)));
+        cellSize = size > 0 ? size : 1;
+        columns = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+
+        cellOffsets = new int[columns * rows + 1];
+        int[] cells = new int[n];
+        for (int v = 0; v < n; v++) {
+            cells[v] = row(ys[v]) * columns + column(xs[v]);
+            cellOffsets[cells[v] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellOffsets[c + 1] += cellOffsets[c];
+        }
+        cellVertices = new int[n];
+        int[] fill = new int[columns * rows];
+        for (int v = 0; v < n; v++) {
+            cellVertices[cellOffsets[cells[v]] + fill[cells[v]]++] = v;
+        }
+    }
+
+    /**
+     * Returns the vertex nearest to the point, NONE if there are no vertices
+     *
+     * @param latitude  latitude in degrees
+     * @param longitude longitude in degrees
+     */
+    int nearest(double latitude, double longitude) {
+        int[] found = new int[1];
+        return search(latitude, longitude, found, new double[1]) == 0 ? NONE : found[0];
+    }
+
+    /**
+     * Returns up to k vertices nearest to the point, nearest first
+     *
+     * @param latitude  latitude in degrees
+     * @param longitude longitude in degrees
+     */
+    int[] nearest(double latitude, double longitude, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of crossroads must not be negative: " + k);
+        }
+        int[] found = new int[Math.min(k, xs.length)];
+        search(latitude, longitude, found, new double[found.length]);
+        return found;
+    }
+
+    /**
+     * Fills found with the nearest vertices by increasing squared distance
+     *
+     * @return the number of vertices found
+     */
+    private int search(double latitude, double longitude, int[] found, double[] distances) {
+        int k = found.length;
+        if (k == 0) {
+            return 0;
+        }
+        double x = projectX(Math.toRadians(longitude));
+        double y = projectY(Math.toRadians(latitude));
+        int column = column(x);
+        int row = row(y);
+        int count = 0;
+
+        for (int ring = 0; ; ring++) {
+            if (ring > 0) {
+                // distance from the point to the unscanned cells beyond the sides of the
+                // scanned square which lie inside the grid
+                double margin = Double.POSITIVE_INFINITY;
+                if (column - ring >= 0) {
+                    margin = Math.min(margin, x - (minX + (column - ring + 1) * cellSize));
+                }
+                if (column + ring < columns) {
+                    margin = Math.min(margin, minX + (column + ring) * cellSize - x);
+                }
+                if (row - ring >= 0) {
+                    margin = Math.min(margin, y - (minY + (row - ring + 1) * cellSize));
+                }
+                if (row + ring < rows) {
+                    margin = Math.min(margin, minY + (row + ring) * cellSize - y);
+                }
+                if (margin == Double.POSITIVE_INFINITY || count == k && margin * margin >= distances[k - 1]) {
+                    return count;
+                }
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                int step = r == row - ring || r == row + ring ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+                        int vertex = cellVertices[i];
+                        double dx = xs[vertex] - x;
+                        double dy = ys[vertex] - y;
+                        count = insert(found, distances, count, vertex, dx * dx + dy * dy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the vertex into the sorted candidates unless all k are nearer
+     *
+     * @return the new number of candidates
+     */
+    private static int insert(int[] found, double[] distances, int count, int vertex, double distance) {
+        int k = found.length;
+        if (count == k && distance >= distances[k - 1]) {
+            return count;
+        }
+        int i = count == k ? k - 1 : count++;
+        while (i > 0 && distances[i - 1] > distance) {
+            found[i] = found[i - 1];
+            distances[i] = distances[i - 1];
+            i--;
+        }
+        found[i] = vertex;
+        distances[i] = distance;
+        return count;
+    }
+
+    private double projectX(double longitude) {
+        return longitude * cosine * EARTH_RADIUS;
+    }
+
+    private double projectY(double latitude) {
+        return latitude * EARTH_RADIUS;
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+}
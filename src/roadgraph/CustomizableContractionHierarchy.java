@@ -0,0 +1,486 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Customizable Contraction Hierarchies over the topology of a frozen {@link CompactGraph}.
+ * <p>
+ * Preprocessing does not look at weights. Vertices are ordered by nested dissection:
+ * the crossroads are split at the median coordinate of their longer extent, the
+ * crossroads of the smaller side bordering the other side form the separator and are
+ * ranked above both halves, which are ordered recursively. Contracting in this order
+ * without witness searches gives a chordal shortcut graph, in which the upper neighbours
+ * of every vertex form a clique and its lowest upper neighbour is its parent in the
+ * elimination tree.
+ * <p>
+ * Customization computes both directions of every arc from the weights of any graph
+ * sharing the topology: an arc is the lightest of its original roads and of its lower
+ * triangles. Vertices are grouped in levels above all their lower neighbours; each
+ * vertex only writes its own upward arcs, so the vertices of one level run in parallel.
+ * <p>
+ * Queries relax the upward arcs of the elimination tree ancestors of both ends in rank
+ * order without a priority queue, and meet at the common ancestor with the smallest
+ * total distance.
+ */
+final class CustomizableContractionHierarchy {
+
+    private static final int NO_VERTEX = -1;
+    /**
+     * Parts of at most this many crossroads are not dissected further
+     */
+    private static final int LEAF_SIZE = 8;
+
+    private final CompactGraph graph;
+    /**
+     * Rank of every vertex and vertex of every rank, arcs below are indexed by rank
+     */
+    private final int[] ranks;
+    private final int[] order;
+    /**
+     * Upward arcs grouped by their lower end, upper ends sorted, and the lower end of every arc
+     */
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] arcSources;
+    /**
+     * Lower neighbours of every rank and the arcs from them
+     */
+    private final int[] downOffsets;
+    private final int[] downArcs;
+    private final int[] eliminationParents;
+    /**
+     * Ranks grouped by customization level, every rank is above all its lower neighbours
+     */
+    private final int[][] levels;
+
+    private CustomizableContractionHierarchy(CompactGraph graph, int[] order) {
+        this.graph = graph;
+        this.order = order;
+        int n = order.length;
+        ranks = new int[n];
+        for (int rank = 0; rank < n; rank++) {
+            ranks[order[rank]] = rank;
+        }
+
+        IntList[] upper = new IntList[n];
+        for (int rank = 0; rank < n; rank++) {
+            upper[rank] = new IntList(4);
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; e++) {
+                int low = Math.min(ranks[u], ranks[graph.outTargets[e]]);
+                int high = Math.max(ranks[u], ranks[graph.outTargets[e]]);
+                if (low != high) {
+                    upper[low].add(high);
+                }
+            }
+        }
+
+        // eliminating a rank turns its upper neighbours into a clique, which is enough to
+        // pass on to the lowest of them as the others are its upper neighbours then
+        eliminationParents = new int[n];
+        int[][] upLists = new int[n][];
+        int arcCount = 0;
+        for (int rank = 0; rank < n; rank++) {
+            int[] targets = distinct(upper[rank].toArray());
+            upper[rank] = null;
+            upLists[rank] = targets;
+            arcCount += targets.length;
+            eliminationParents[rank] = targets.length == 0 ? NO_VERTEX : targets[0];
+            for (int i = 1; i < targets.length; i++) {
+                upper[targets[0]].add(targets[i]);
+            }
+        }
+
+        upOffsets = new int[n + 1];
+        upTargets = new int[arcCount];
+        arcSources = new int[arcCount];
+        downOffsets = new int[n + 1];
+        for (int rank = 0; rank < n; rank++) {
+            upOffsets[rank + 1] = upOffsets[rank] + upLists[rank].length;
+            System.arraycopy(upLists[rank], 0, upTargets, upOffsets[rank], upLists[rank].length);
+            Arrays.fill(arcSources, upOffsets[rank], upOffsets[rank + 1], rank);
+            for (int target : upLists[rank]) {
+                downOffsets[target + 1]++;
+            }
+        }
+        for (int rank = 0; rank < n; rank++) {
+            downOffsets[rank + 1] += downOffsets[rank];
+        }
+        downArcs = new int[arcCount];
+        int[] fill = Arrays.copyOf(downOffsets, n);
+        for (int arc = 0; arc < arcCount; arc++) {
+            downArcs[fill[upTargets[arc]]++] = arc;
+        }
+
+        int[] levelOf = new int[n];
+        int levelCount = 0;
+        for (int rank = 0; rank < n; rank++) {
+            for (int i = downOffsets[rank]; i < downOffsets[rank + 1]; i++) {
+                levelOf[rank] = Math.max(levelOf[rank], levelOf[arcSources[downArcs[i]]] + 1);
+            }
+            levelCount = Math.max(levelCount, levelOf[rank] + 1);
+        }
+        int[] levelSizes = new int[levelCount];
+        for (int rank = 0; rank < n; rank++) {
+            levelSizes[levelOf[rank]]++;
+        }
+        levels = new int[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            levels[level] = new int[levelSizes[level]];
+            levelSizes[level] = 0;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            levels[levelOf[rank]][levelSizes[levelOf[rank]]++] = rank;
+        }
+    }
+
+    /**
+     * Orders the vertices of the graph and builds the shortcut graph, weights are not used
+     */
+    static CustomizableContractionHierarchy build(CompactGraph graph) {
+        return new CustomizableContractionHierarchy(graph, new NestedDissection(graph).run());
+    }
+
+    /**
+     * Returns the number of arcs, original roads and shortcuts, each serving both directions
+     */
+    int arcCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Returns true if the graph has the topology this hierarchy was built for
+     */
+    boolean isTopologyOf(CompactGraph graph) {
+        return graph.outTargets == this.graph.outTargets;
+    }
+
+    /**
+     * Computes arc weights from the weights of the graph, which must share the topology of
+     * the hierarchy, e.g. a profile view or a reweighted copy of it
+     */
+    Metric customize(CompactGraph graph) {
+        if (!isTopologyOf(graph)) {
+            throw new IllegalArgumentException("Graph does not have the topology of the hierarchy");
+        }
+        int arcs = upTargets.length;
+        double[] upWeights = new double[arcs];
+        double[] downWeights = new double[arcs];
+        Arrays.fill(upWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(downWeights, Double.POSITIVE_INFINITY);
+        int[] upMiddles = new int[arcs];
+        int[] downMiddles = new int[arcs];
+        Arrays.fill(upMiddles, NO_VERTEX);
+        Arrays.fill(downMiddles, NO_VERTEX);
+
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; e++) {
+                int from = ranks[u];
+                int to = ranks[graph.outTargets[e]];
+                if (from < to) {
+                    int arc = findArc(from, to);
+                    upWeights[arc] = Math.min(upWeights[arc], graph.outWeights[e]);
+                } else if (from > to) {
+                    int arc = findArc(to, from);
+                    downWeights[arc] = Math.min(downWeights[arc], graph.outWeights[e]);
+                }
+            }
+        }
+
+        ThreadLocal<int[]> arcPositions = ThreadLocal.withInitial(() -> new int[order.length]);
+        for (int[] level : levels) {
+            IntStream.of(level).parallel().forEach(rank -> {
+                int[] arcOf = arcPositions.get();
+                for (int arc = upOffsets[rank]; arc < upOffsets[rank + 1]; arc++) {
+                    arcOf[upTargets[arc]] = arc;
+                }
+                // every lower neighbour closes a triangle with each arc to a higher target,
+                // whose arcs from the lower neighbour follow the one to rank
+                for (int i = downOffsets[rank]; i < downOffsets[rank + 1]; i++) {
+                    int lowerArc = downArcs[i];
+                    int lower = arcSources[lowerArc];
+                    for (int sideArc = lowerArc + 1; sideArc < upOffsets[lower + 1]; sideArc++) {
+                        int arc = arcOf[upTargets[sideArc]];
+                        double up = downWeights[lowerArc] + upWeights[sideArc];
+                        if (up < upWeights[arc]) {
+                            upWeights[arc] = up;
+                            upMiddles[arc] = lower;
+                        }
+                        double down = downWeights[sideArc] + upWeights[lowerArc];
+                        if (down < downWeights[arc]) {
+                            downWeights[arc] = down;
+                            downMiddles[arc] = lower;
+                        }
+                    }
+                }
+            });
+        }
+        return new Metric(graph, upWeights, downWeights, upMiddles, downMiddles);
+    }
+
+    private int findArc(int lower, int upper) {
+        int arc = Arrays.binarySearch(upTargets, upOffsets[lower], upOffsets[lower + 1], upper);
+        if (arc < 0) {
+            throw new IllegalStateException("Arc " + lower + "-" + upper + " not found in hierarchy");
+        }
+        return arc;
+    }
+
+    private static int[] distinct(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Arc weights of one customization and the queries on them
+     */
+    final class Metric {
+
+        private final CompactGraph graph;
+        private final double[] upWeights;
+        private final double[] downWeights;
+        /**
+         * Lower vertex of the triangle giving the weight, NO_VERTEX for original roads
+         */
+        private final int[] upMiddles;
+        private final int[] downMiddles;
+
+        private Metric(CompactGraph graph, double[] upWeights, double[] downWeights,
+                       int[] upMiddles, int[] downMiddles) {
+            this.graph = graph;
+            this.upWeights = upWeights;
+            this.downWeights = downWeights;
+            this.upMiddles = upMiddles;
+            this.downMiddles = downMiddles;
+        }
+
+        /**
+         * Returns true if this metric was customized from the weights of the graph
+         */
+        boolean isFor(CompactGraph graph) {
+            return this.graph == graph;
+        }
+
+        /**
+         * Finds the shortest path by elimination tree searches from both ends
+         *
+         * @param visualiser receives every crossroad reached by either direction
+         * @return vertex ids of the shortest path from start to goal, or null if goal is unreachable
+         */
+        int[] search(int from, int to, Consumer<GeographicPoint> visualiser) {
+            // workspaces are indexed by rank here, parents hold the arc a rank was reached by
+            SearchWorkspace forward = graph.forwardWorkspace();
+            SearchWorkspace backward = graph.backwardWorkspace();
+            int source = ranks[from];
+            int target = ranks[to];
+            forward.reach(source, 0, NO_VERTEX);
+            backward.reach(target, 0, NO_VERTEX);
+            relaxAncestors(source, forward, upWeights, visualiser);
+            relaxAncestors(target, backward, downWeights, visualiser);
+
+            double best = Double.POSITIVE_INFINITY;
+            int meeting = NO_VERTEX;
+            for (int rank = source; rank != NO_VERTEX; rank = eliminationParents[rank]) {
+                double distance = forward.distance(rank) + backward.distance(rank);
+                if (distance < best) {
+                    best = distance;
+                    meeting = rank;
+                }
+            }
+            if (meeting == NO_VERTEX) {
+                return null;
+            }
+
+            IntList upward = new IntList();
+            for (int rank = meeting; rank != source; rank = arcSources[forward.parent(rank)]) {
+                upward.add(forward.parent(rank));
+            }
+            IntList path = new IntList();
+            path.add(from);
+            for (int i = upward.size() - 1; i >= 0; i--) {
+                unpack(upward.get(i), true, path);
+            }
+            for (int rank = meeting; rank != target; rank = arcSources[backward.parent(rank)]) {
+                unpack(backward.parent(rank), false, path);
+            }
+            return path.toArray();
+        }
+
+        private void relaxAncestors(int root, SearchWorkspace workspace, double[] weights,
+                                    Consumer<GeographicPoint> visualiser) {
+            for (int rank = root; rank != NO_VERTEX; rank = eliminationParents[rank]) {
+                double distance = workspace.distance(rank);
+                if (distance == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                visualiser.accept(graph.crossroad(order[rank]));
+                for (int arc = upOffsets[rank]; arc < upOffsets[rank + 1]; arc++) {
+                    double next = distance + weights[arc];
+                    if (next < workspace.distance(upTargets[arc])) {
+                        workspace.reach(upTargets[arc], next, arc);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Appends the original vertices of the arc, excluding its first one, to the path
+         *
+         * @param upward true for the direction from the lower to the upper end
+         */
+        private void unpack(int arc, boolean upward, IntList path) {
+            int lower = arcSources[arc];
+            int upper = upTargets[arc];
+            int middle = upward ? upMiddles[arc] : downMiddles[arc];
+            if (middle == NO_VERTEX) {
+                path.add(order[upward ? upper : lower]);
+                return;
+            }
+            // middle is below both ends: lower - middle - upper goes down one arc and up the other
+            if (upward) {
+                unpack(findArc(middle, lower), false, path);
+                unpack(findArc(middle, upper), true, path);
+            } else {
+                unpack(findArc(middle, upper), false, path);
+                unpack(findArc(middle, lower), true, path);
+            }
+        }
+    }
+
+    /**
+     * Recursive coordinate bisection of the crossroads
+     */
+    private static final class NestedDissection {
+
+        private final CompactGraph graph;
+        private final int[] xRanks;
+        private final int[] yRanks;
+        /**
+         * Part of the current bisection every vertex is in
+         */
+        private final int[] parts;
+        private final int[] order;
+        private int nextPart;
+
+        NestedDissection(CompactGraph graph) {
+            this.graph = graph;
+            int n = graph.vertexCount();
+            xRanks = coordinateRanks(n, v -> graph.longitudes[v] * graph.latitudeCosines[v]);
+            yRanks = coordinateRanks(n, v -> graph.latitudes[v]);
+            parts = new int[n];
+            order = new int[n];
+        }
+
+        private static int[] coordinateRanks(int n, IntToDoubleFunction coordinate) {
+            Integer[] sorted = new Integer[n];
+            for (int v = 0; v < n; v++) {
+                sorted[v] = v;
+            }
+            Arrays.sort(sorted, Comparator.comparingDouble(coordinate::applyAsDouble));
+            int[] ranks = new int[n];
+            for (int i = 0; i < n; i++) {
+                ranks[sorted[i]] = i;
+            }
+            return ranks;
+        }
+
+        /**
+         * @return vertices in contraction order, separators last
+         */
+        int[] run() {
+            dissect(IntStream.range(0, graph.vertexCount()).toArray(), 0);
+            return order;
+        }
+
+        /**
+         * Writes the vertices into order starting at the given position
+         */
+        private void dissect(int[] vertices, int position) {
+            if (vertices.length <= LEAF_SIZE) {
+                System.arraycopy(vertices, 0, order, position, vertices.length);
+                return;
+            }
+            int[] coordinate = extent(vertices, xRanks) >= extent(vertices, yRanks) ? xRanks : yRanks;
+            long[] keys = new long[vertices.length];
+            for (int i = 0; i < vertices.length; i++) {
+                keys[i] = (long) coordinate[vertices[i]] << 32 | vertices[i];
+            }
+            Arrays.sort(keys);
+            int half = vertices.length / 2;
+            int low = ++nextPart;
+            int high = ++nextPart;
+            for (int i = 0; i < keys.length; i++) {
+                vertices[i] = (int) keys[i];
+                parts[vertices[i]] = i < half ? low : high;
+            }
+
+            IntList lowBorder = new IntList();
+            IntList highBorder = new IntList();
+            for (int v : vertices) {
+                if (touches(v, parts[v] == low ? high : low)) {
+                    (parts[v] == low ? lowBorder : highBorder).add(v);
+                }
+            }
+            IntList separator = lowBorder.size() <= highBorder.size() ? lowBorder : highBorder;
+            int separatorPart = ++nextPart;
+            for (int i = 0; i < separator.size(); i++) {
+                parts[separator.get(i)] = separatorPart;
+            }
+
+            IntList lowPart = new IntList();
+            IntList highPart = new IntList();
+            for (int v : vertices) {
+                if (parts[v] == low) {
+                    lowPart.add(v);
+                } else if (parts[v] == high) {
+                    highPart.add(v);
+                }
+            }
+            for (int i = 0; i < separator.size(); i++) {
+                order[position + vertices.length - separator.size() + i] = separator.get(i);
+            }
+            dissect(lowPart.toArray(), position);
+            dissect(highPart.toArray(), position + lowPart.size());
+        }
+
+        private static int extent(int[] vertices, int[] coordinate) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int v : vertices) {
+                min = Math.min(min, coordinate[v]);
+                max = Math.max(max, coordinate[v]);
+            }
+            return max - min;
+        }
+
+        /**
+         * Returns true if the vertex has a road to or from a vertex of the part
+         */
+        private boolean touches(int v, int part) {
+            for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+                if (parts[graph.outTargets[e]] == part) {
+                    return true;
+                }
+            }
+            for (int e = graph.inOffsets[v]; e < graph.inOffsets[v + 1]; e++) {
+                if (parts[graph.inSources[e]] == part) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package roadgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Delta-stepping single source shortest paths of Meyer and Sanders.
+ * <p>
+ * Vertices are kept in buckets of tentative distance width delta. The smallest nonempty
+ * bucket is emptied in phases which relax the light roads, of weight at most delta, of
+ * all its vertices in parallel; vertices improved into the same bucket come back in the
+ * next phase. Once the bucket stays empty the heavy roads of all vertices removed from
+ * it are relaxed in parallel, they can only reach later buckets. Distances are doubles
+ * stored as their bits in an atomic array: the bits of non-negative doubles order like
+ * the doubles, so a compare-and-set loop keeps the minimum without locks.
+ * <p>
+ * Buckets only hold vertex ids and are filled sequentially between parallel steps;
+ * a vertex may be in several buckets and is skipped in all but the one of its distance.
+ */
+final class DeltaStepping {
+
+    /**
+     * Frontiers smaller than this are relaxed sequentially, forking would cost more
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final long UNREACHED = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+
+    private final CompactGraph graph;
+    private final double delta;
+    private final AtomicLongArray distances;
+    private final List<IntList> buckets = new ArrayList<>();
+    /**
+     * Phase a vertex was last taken into a frontier, to drop duplicates
+     */
+    private final int[] frontierPhases;
+    private int phase;
+    /**
+     * Bucket a vertex was last removed from plus one, so heavy roads are relaxed once per bucket
+     */
+    private final int[] removedFrom;
+
+    private DeltaStepping(CompactGraph graph, double delta) {
+        this.graph = graph;
+        this.delta = delta;
+        int n = graph.vertexCount();
+        distances = new AtomicLongArray(n);
+        for (int v = 0; v < n; v++) {
+            distances.set(v, UNREACHED);
+        }
+        frontierPhases = new int[n];
+        removedFrom = new int[n];
+    }
+
+    /**
+     * Computes distances from the root to all vertices
+     *
+     * @param delta bucket width in units of the weights, positive
+     * @return distances indexed by vertex id, infinity for unreachable vertices
+     */
+    static double[] distances(CompactGraph graph, int root, double delta) {
+        if (!(delta > 0) || delta == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Bucket width must be positive and finite: " + delta);
+        }
+        return new DeltaStepping(graph, delta).run(root);
+    }
+
+    /**
+     * Returns a bucket width of the mean finite road weight, which keeps the light
+     * phases short on road networks while most roads stay light
+     */
+    static double defaultDelta(CompactGraph graph) {
+        double sum = 0;
+        int count = 0;
+        for (double weight : graph.outWeights) {
+            if (weight != Double.POSITIVE_INFINITY) {
+                sum += weight;
+                count++;
+            }
+        }
+        return count == 0 || sum == 0 ? 1 : sum / count;
+    }
+
+    private double[] run(int root) {
+        distances.set(root, Double.doubleToLongBits(0));
+        bucket(0).add(root);
+
+        for (int index = 0; index < buckets.size(); index++) {
+            IntList removed = new IntList();
+            for (; ; ) {
+                int[] frontier = takeFrontier(index);
+                if (frontier.length == 0) {
+                    break;
+                }
+                for (int v : frontier) {
+                    if (removedFrom[v] != index + 1) {
+                        removedFrom[v] = index + 1;
+                        removed.add(v);
+                    }
+                }
+                distribute(relax(frontier, true));
+            }
+            distribute(relax(removed.toArray(), false));
+        }
+
+        double[] result = new double[distances.length()];
+        for (int v = 0; v < result.length; v++) {
+            result[v] = Double.longBitsToDouble(distances.get(v));
+        }
+        return result;
+    }
+
+    private IntList bucket(int index) {
+        while (buckets.size() <= index) {
+            buckets.add(new IntList());
+        }
+        return buckets.get(index);
+    }
+
+    /**
+     * Empties the bucket and returns its vertices whose distance still falls into it
+     */
+    private int[] takeFrontier(int index) {
+        IntList bucket = buckets.get(index);
+        buckets.set(index, new IntList());
+        phase++;
+        IntList frontier = new IntList();
+        for (int i = 0; i < bucket.size(); i++) {
+            int v = bucket.get(i);
+            if (frontierPhases[v] != phase && bucketIndex(distance(v)) == index) {
+                frontierPhases[v] = phase;
+                frontier.add(v);
+            }
+        }
+        return frontier.toArray();
+    }
+
+    private void distribute(int[] improved) {
+        for (int v : improved) {
+            bucket(bucketIndex(distance(v))).add(v);
+        }
+    }
+
+    /**
+     * Relaxes the light or the heavy roads of all vertices
+     *
+     * @return the improved vertices, possibly repeated
+     */
+    private int[] relax(int[] vertices, boolean light) {
+        int roads = 0;
+        for (int v : vertices) {
+            roads += graph.outOffsets[v + 1] - graph.outOffsets[v];
+        }
+        int[] improved = new int[roads];
+        AtomicInteger count = new AtomicInteger();
+        IntStream stream = IntStream.of(vertices);
+        if (vertices.length >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(u -> {
+            double distance = distance(u);
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; e++) {
+                double weight = graph.outWeights[e];
+                if ((weight <= delta) == light && weight != Double.POSITIVE_INFINITY
+                        && decrease(graph.outTargets[e], distance + weight)) {
+                    improved[count.getAndIncrement()] = graph.outTargets[e];
+                }
+            }
+        });
+        return Arrays.copyOf(improved, count.get());
+    }
+
+    /**
+     * Lowers the distance of the vertex unless it is already not greater
+     *
+     * @return true if the distance was lowered
+     */
+    private boolean decrease(int v, double distance) {
+        long bits = Double.doubleToLongBits(distance);
+        for (; ; ) {
+            long current = distances.get(v);
+            if (bits >= current) {
+                return false;
+            }
+            if (distances.compareAndSet(v, current, bits)) {
+                return true;
+            }
+        }
+    }
+
+    private double distance(int v) {
+        return Double.longBitsToDouble(distances.get(v));
+    }
+
+    private int bucketIndex(double distance) {
+        return (int) (distance / delta);
+    }
+}
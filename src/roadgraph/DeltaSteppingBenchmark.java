@@ -0,0 +1,79 @@
+package roadgraph;
+
+import util.GraphLoader;
+
+import java.util.Random;
+
+/**
+ * Compares delta-stepping with sequential Dijkstra on complete shortest path trees of
+ * random roots, for several bucket widths around the default one.
+ * <p>
+ * Arguments: map file (default data/maps/new_york.map) and number of roots (default 200).
+ */
+public class DeltaSteppingBenchmark {
+
+    private static final double[] DELTA_FACTORS = {0.25, 0.5, 1, 2, 4, 16};
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        String file = args.length > 0 ? args[0] : "data/maps/new_york.map";
+        int roots = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        MapGraph map = new MapGraph();
+        GraphLoader.loadRoadMap(file, map);
+        CompactGraph graph = map.freeze();
+        double defaultDelta = DeltaStepping.defaultDelta(graph);
+        System.out.println(file + ": " + graph.vertexCount() + " crossroads, " + graph.edgeCount()
+                + " roads, default delta " + defaultDelta + " km, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+
+        Random random = new Random(42);
+        int[] sources = new int[roots];
+        for (int i = 0; i < roots; i++) {
+            sources[i] = random.nextInt(graph.vertexCount());
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runDijkstra(graph, sources);
+            runDeltaStepping(graph, sources, defaultDelta);
+        }
+        double dijkstraTime = runDijkstra(graph, sources);
+        System.out.printf("Dijkstra:              %8.3f ms per tree%n", dijkstraTime / roots);
+
+        for (double factor : DELTA_FACTORS) {
+            double delta = factor * defaultDelta;
+            double time = runDeltaStepping(graph, sources, delta);
+            int mismatches = 0;
+            for (int source : sources) {
+                double[] expected = ShortestPathTree.forward(graph, source).distances;
+                double[] actual = DeltaStepping.distances(graph, source, delta);
+                for (int v = 0; v < expected.length; v++) {
+                    if (Math.abs(expected[v] - actual[v]) > 1e-9 && expected[v] != actual[v]) {
+                        mismatches++;
+                    }
+                }
+            }
+            System.out.printf("Delta-stepping %6.3f: %8.3f ms per tree, speedup %.2f, mismatches %d%n",
+                    delta, time / roots, dijkstraTime / time, mismatches);
+        }
+    }
+
+    /**
+     * @return total time in ms
+     */
+    private static double runDijkstra(CompactGraph graph, int[] sources) {
+        long start = System.nanoTime();
+        for (int source : sources) {
+            ShortestPathTree.forward(graph, source);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double runDeltaStepping(CompactGraph graph, int[] sources, double delta) {
+        long start = System.nanoTime();
+        for (int source : sources) {
+            DeltaStepping.distances(graph, source, delta);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,149 @@
+package roadgraph;
+
+/**
+ * Dial's bucket queue over cyclic buckets of fixed point keys.
+ * <p>
+ * Queued keys of monotone searches span less than the heaviest road plus the change
+ * of the heuristic, so a cyclic array covering that span holds every key in a bucket
+ * of its own width. The array starts small and doubles whenever a key falls beyond it;
+ * past {@link #MAX_BUCKETS} the buckets get twice as wide instead, which keeps the scans
+ * short for weights much coarser than a millimetre. Clearing the queue starts over small.
+ * Keys beyond the widest buckets, infinite ones of unreachable goals, wait in an overflow
+ * bucket until all others are taken. A bitmap of nonempty buckets lets the scan for the
+ * next key skip 64 empty buckets at a time.
+ */
+final class DialQueue extends MonotoneBucketQueue {
+
+    private static final int INITIAL_BUCKETS = 1 << 10;
+    private static final int MAX_BUCKETS = 1 << 12;
+    /**
+     * Buckets are at most 2^MAX_SHIFT fixed point units wide, about 1000 km for weights in km
+     */
+    private static final int MAX_SHIFT = 30;
+
+    private long[] occupied;
+    private int mask;
+    private int overflow;
+    /**
+     * Bucket width is 2^shift fixed point units
+     */
+    private int shift;
+
+    DialQueue(int capacity) {
+        super(capacity, INITIAL_BUCKETS + 1);
+        occupied = new long[INITIAL_BUCKETS / Long.SIZE];
+        mask = INITIAL_BUCKETS - 1;
+        overflow = INITIAL_BUCKETS;
+    }
+
+    /**
+     * Shrinks grown buckets back to the initial count and width. Workspaces are shared by
+     * all searches of a thread, so keys of one search, e.g. times of day in minutes, must
+     * not leave wide buckets to the searches after it.
+     */
+    @Override
+    void cleared() {
+        if (shift != 0 || overflow != INITIAL_BUCKETS) {
+            resize(INITIAL_BUCKETS + 1);
+            occupied = new long[INITIAL_BUCKETS / Long.SIZE];
+            mask = INITIAL_BUCKETS - 1;
+            overflow = INITIAL_BUCKETS;
+            shift = 0;
+        }
+    }
+
+    @Override
+    int bucketOf(long fixedKey) {
+        if ((fixedKey >> shift) - (last >> shift) > mask) {
+            if (fixedKey - last >> MAX_SHIFT >= MAX_BUCKETS - 1) {
+                return overflow;
+            }
+            grow(fixedKey);
+        }
+        return (int) (fixedKey >> shift & mask);
+    }
+
+    @Override
+    int minBucket() {
+        long base = last >> shift;
+        int start = (int) (base & mask);
+        int word = start / Long.SIZE;
+        long bits = occupied[word] & (-1L << start % Long.SIZE);
+        int scanned = 0;
+        // one more word than the array covers the low bits of the start word after wrapping
+        while (bits == 0 && scanned <= occupied.length) {
+            word = (word + 1) % occupied.length;
+            bits = occupied[word];
+            scanned++;
+        }
+        if (bits == 0) {
+            return spill();
+        }
+        int bucket = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        last = Math.max(last, base + ((bucket - start) & mask) << shift);
+        return bucket;
+    }
+
+    @Override
+    void emptied(int bucket) {
+        if (bucket != overflow) {
+            occupied[bucket / Long.SIZE] &= ~(1L << bucket % Long.SIZE);
+        }
+    }
+
+    @Override
+    void filled(int bucket) {
+        if (bucket != overflow) {
+            occupied[bucket / Long.SIZE] |= 1L << bucket % Long.SIZE;
+        }
+    }
+
+    /**
+     * Moves the overflow to the cyclic buckets from its minimal key on, only called when
+     * they are empty
+     *
+     * @return the bucket of the minimal key
+     */
+    private int spill() {
+        int[] vertices = takeBucket(overflow);
+        long min = Long.MAX_VALUE;
+        for (int vertex : vertices) {
+            min = Math.min(min, fixedKey(vertex));
+        }
+        last = min;
+        for (int vertex : vertices) {
+            relink(vertex);
+        }
+        return bucketOf(min);
+    }
+
+    /**
+     * Doubles the buckets, or their width once there are enough of them, until they
+     * cover the key, and relinks the queued vertices
+     */
+    private void grow(long fixedKey) {
+        int buckets = bucketCount() - 1;
+        while ((fixedKey >> shift) - (last >> shift) > buckets - 1) {
+            if (buckets < MAX_BUCKETS) {
+                buckets *= 2;
+            } else {
+                shift++;
+            }
+        }
+        IntList queued = new IntList();
+        for (int bucket = 0; bucket < bucketCount(); bucket++) {
+            if (!isEmpty(bucket)) {
+                for (int vertex : takeBucket(bucket)) {
+                    queued.add(vertex);
+                }
+            }
+        }
+        resize(buckets + 1);
+        occupied = new long[buckets / Long.SIZE];
+        mask = buckets - 1;
+        overflow = buckets;
+        for (int i = 0; i < queued.size(); i++) {
+            relink(queued.get(i));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Direction-optimizing breadth first search of Beamer, Asanovic and Patterson.
+ * <p>
+ * Levels are expanded top-down, over the out-roads of the frontier, while the frontier
+ * is small. Once a growing frontier has more than a {@link #TOP_DOWN_FACTOR}-th of the
+ * roads of unreached vertices the search goes bottom-up: every unreached vertex looks
+ * for a frontier vertex among the sources of its in-roads. It returns to top-down when
+ * a shrinking frontier falls below a {@link #BOTTOM_UP_FACTOR}-th of the vertices.
+ * Road networks rarely have such frontiers, the small tails of their searches stay
+ * top-down. Closed roads, of infinite weight, are not followed.
+ */
+final class DirectionOptimizingBfs {
+
+    private static final int TOP_DOWN_FACTOR = 14;
+    private static final int BOTTOM_UP_FACTOR = 24;
+    /**
+     * Frontiers smaller than this are expanded sequentially, forking would cost more
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+    static final int UNREACHED = -1;
+
+    private DirectionOptimizingBfs() {
+    }
+
+    /**
+     * Searches from start to goal on the workspace, parents and distances in roads are
+     * left in it. Bottom-up levels take the parent and order the next frontier like a
+     * FIFO queue would, so the path and the visiting order do not depend on the direction.
+     *
+     * @return true if the goal was reached
+     */
+    static boolean search(CompactGraph graph, SearchWorkspace workspace, int from, int to,
+                          Consumer<GeographicPoint> visualiser) {
+        int n = graph.vertexCount();
+        // vertices in order of reaching them, the frontier is [head, tail)
+        int[] order = workspace.vertexQueue();
+        int head = 0;
+        int tail = 0;
+        order[tail++] = from;
+        workspace.reach(from, 0, from);
+        long unreachedRoads = graph.outTargets.length - outDegree(graph, from);
+        int[] positions = null;
+        boolean bottomUp = false;
+        int previousSize = 0;
+
+        for (int level = 0; head < tail; level++) {
+            long frontierRoads = 0;
+            for (int i = head; i < tail; i++) {
+                visualiser.accept(graph.crossroad(order[i]));
+                if (order[i] == to) {
+                    return true;
+                }
+                frontierRoads += outDegree(graph, order[i]);
+            }
+            bottomUp = direction(bottomUp, tail - head, previousSize, frontierRoads, unreachedRoads, n);
+            previousSize = tail - head;
+
+            int next = tail;
+            if (bottomUp) {
+                if (positions == null) {
+                    positions = new int[n];
+                }
+                for (int i = head; i < tail; i++) {
+                    positions[order[i]] = i;
+                }
+                for (int v = 0; v < n; v++) {
+                    if (!workspace.isReached(v)) {
+                        int parent = frontierParent(graph, workspace, positions, level, v);
+                        if (parent != UNREACHED) {
+                            order[next++] = v;
+                            workspace.reach(v, level + 1, parent);
+                            unreachedRoads -= outDegree(graph, v);
+                        }
+                    }
+                }
+                sortLikeQueue(graph, workspace, positions, order, tail, next);
+            } else {
+                for (int i = head; i < tail; i++) {
+                    int current = order[i];
+                    for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                        int neighbour = graph.outTargets[e];
+                        if (!workspace.isReached(neighbour) && graph.outWeights[e] != Double.POSITIVE_INFINITY) {
+                            workspace.reach(neighbour, level + 1, current);
+                            order[next++] = neighbour;
+                            unreachedRoads -= outDegree(graph, neighbour);
+                        }
+                    }
+                }
+            }
+            head = tail;
+            tail = next;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the next level is to be expanded bottom-up
+     */
+    private static boolean direction(boolean bottomUp, int frontierSize, int previousSize,
+                                     long frontierRoads, long unreachedRoads, int vertexCount) {
+        if (!bottomUp) {
+            return frontierSize > previousSize && frontierRoads > unreachedRoads / TOP_DOWN_FACTOR;
+        }
+        return frontierSize > previousSize || frontierSize >= vertexCount / BOTTOM_UP_FACTOR;
+    }
+
+    /**
+     * Returns the frontier vertex first in the queue among the sources of the open
+     * in-roads of the vertex, UNREACHED if there is none
+     */
+    private static int frontierParent(CompactGraph graph, SearchWorkspace workspace, int[] positions,
+                                      int level, int vertex) {
+        int parent = UNREACHED;
+        for (int e = graph.inOffsets[vertex]; e < graph.inOffsets[vertex + 1]; e++) {
+            int source = graph.inSources[e];
+            if (graph.inWeights[e] != Double.POSITIVE_INFINITY && workspace.isReached(source)
+                    && workspace.distance(source) == level
+                    && (parent == UNREACHED || positions[source] < positions[parent])) {
+                parent = source;
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Orders the vertices of order[from, to) by the queue position of their parent and
+     * then by the first open road from it, the order a FIFO queue reaches them in
+     */
+    private static void sortLikeQueue(CompactGraph graph, SearchWorkspace workspace, int[] positions,
+                                      int[] order, int from, int to) {
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            int vertex = order[i];
+            int parent = workspace.parent(vertex);
+            int road = graph.outOffsets[parent];
+            while (graph.outTargets[road] != vertex || graph.outWeights[road] == Double.POSITIVE_INFINITY) {
+                road++;
+            }
+            keys[i - from] = (long) positions[parent] << 32 | road;
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++) {
+            order[i] = graph.outTargets[(int) keys[i - from]];
+        }
+    }
+
+    /**
+     * Computes the number of roads on the fewest road paths from the root to all
+     * vertices, expanding large frontiers in parallel
+     *
+     * @return road counts indexed by vertex id, UNREACHED for unreachable vertices
+     */
+    static int[] levels(CompactGraph graph, int root) {
+        int n = graph.vertexCount();
+        AtomicIntegerArray levels = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            levels.set(v, UNREACHED);
+        }
+        levels.set(root, 0);
+        int[] frontier = {root};
+        long unreachedRoads = graph.outTargets.length - outDegree(graph, root);
+        boolean bottomUp = false;
+        int previousSize = 0;
+
+        for (int level = 0; frontier.length > 0; level++) {
+            long frontierRoads = 0;
+            for (int v : frontier) {
+                frontierRoads += outDegree(graph, v);
+            }
+            bottomUp = direction(bottomUp, frontier.length, previousSize, frontierRoads, unreachedRoads, n);
+            previousSize = frontier.length;
+            frontier = bottomUp ? bottomUpStep(graph, levels, level) : topDownStep(graph, levels, frontier, level);
+            for (int v : frontier) {
+                unreachedRoads -= outDegree(graph, v);
+            }
+        }
+
+        int[] result = new int[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = levels.get(v);
+        }
+        return result;
+    }
+
+    /**
+     * Claims the unreached targets of the open frontier roads for the next level
+     *
+     * @return the next frontier
+     */
+    private static int[] topDownStep(CompactGraph graph, AtomicIntegerArray levels, int[] frontier, int level) {
+        int roads = 0;
+        for (int v : frontier) {
+            roads += outDegree(graph, v);
+        }
+        int[] next = new int[roads];
+        AtomicInteger count = new AtomicInteger();
+        IntStream stream = IntStream.of(frontier);
+        if (frontier.length >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(u -> {
+            for (int e = graph.outOffsets[u]; e < graph.outOffsets[u + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                if (graph.outWeights[e] != Double.POSITIVE_INFINITY && levels.get(neighbour) == UNREACHED
+                        && levels.compareAndSet(neighbour, UNREACHED, level + 1)) {
+                    next[count.getAndIncrement()] = neighbour;
+                }
+            }
+        });
+        return Arrays.copyOf(next, count.get());
+    }
+
+    /**
+     * Finds the unreached vertices with an open in-road from the frontier in parallel,
+     * their levels are set after the scan so the frontier stays the same during it
+     *
+     * @return the next frontier
+     */
+    private static int[] bottomUpStep(CompactGraph graph, AtomicIntegerArray levels, int level) {
+        int[] next = IntStream.range(0, graph.vertexCount()).parallel()
+                .filter(v -> levels.get(v) == UNREACHED && hasFrontierSource(graph, levels, level, v))
+                .toArray();
+        for (int v : next) {
+            levels.set(v, level + 1);
+        }
+        return next;
+    }
+
+    private static boolean hasFrontierSource(CompactGraph graph, AtomicIntegerArray levels, int level, int vertex) {
+        for (int e = graph.inOffsets[vertex]; e < graph.inOffsets[vertex + 1]; e++) {
+            if (graph.inWeights[e] != Double.POSITIVE_INFINITY && levels.get(graph.inSources[e]) == level) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int outDegree(CompactGraph graph, int vertex) {
+        return graph.outOffsets[vertex + 1] - graph.outOffsets[vertex];
+    }
+}
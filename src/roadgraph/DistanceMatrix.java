@@ -0,0 +1,111 @@
+package roadgraph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Shortest distances between sets of vertices
+ */
+final class DistanceMatrix {
+
+    private DistanceMatrix() {
+    }
+
+    /**
+     * Reads the distances from the complete shortest path tree of the source, which the
+     * graph caches for repeated sources and keeps valid across road updates
+     *
+     * @return distances to targets in the order of targets, infinity for unreachable ones
+     */
+    static double[] oneToMany(CompactGraph graph, int source, int[] targets) {
+        ShortestPathTree tree = graph.forwardTree(source);
+        double[] distances = new double[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            distances[i] = tree.distances[targets[i]];
+        }
+        return distances;
+    }
+
+    /**
+     * Bucket based many-to-many search on a contraction hierarchy.
+     * <p>
+     * The backward upward search of every target leaves (target, distance) entries in
+     * buckets of the vertices it settles. The forward upward search of every source then
+     * only scans buckets of the vertices it settles, since every shortest path meets at
+     * its highest ranked vertex. Both phases run in parallel, one search per task.
+     *
+     * @return distances, rows in the order of sources and columns in the order of targets
+     */
+    static double[][] manyToMany(CompactGraph graph, ContractionHierarchy hierarchy,
+                                 int[] sources, int[] targets) {
+        int n = graph.vertexCount();
+        BucketEntries[] spaces = IntStream.range(0, targets.length).parallel()
+                .mapToObj(j -> {
+                    SearchWorkspace workspace = graph.backwardWorkspace();
+                    int count = hierarchy.upwardSearch(targets[j], true, workspace);
+                    int[] vertices = Arrays.copyOf(workspace.vertexQueue(), count);
+                    double[] distances = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        distances[i] = workspace.distance(vertices[i]);
+                    }
+                    return new BucketEntries(vertices, distances);
+                })
+                .toArray(BucketEntries[]::new);
+
+        // buckets in CSR layout: entries of vertex v are bucketOffsets[v]..bucketOffsets[v + 1]-1
+        int[] bucketOffsets = new int[n + 1];
+        for (BucketEntries space : spaces) {
+            for (int vertex : space.vertices) {
+                bucketOffsets[vertex + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            bucketOffsets[v + 1] += bucketOffsets[v];
+        }
+        int[] bucketTargets = new int[bucketOffsets[n]];
+        double[] bucketDistances = new double[bucketOffsets[n]];
+        int[] fill = Arrays.copyOf(bucketOffsets, n);
+        for (int j = 0; j < spaces.length; j++) {
+            BucketEntries space = spaces[j];
+            for (int i = 0; i < space.vertices.length; i++) {
+                int slot = fill[space.vertices[i]]++;
+                bucketTargets[slot] = j;
+                bucketDistances[slot] = space.distances[i];
+            }
+        }
+
+        double[][] matrix = new double[sources.length][];
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            double[] row = new double[targets.length];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            SearchWorkspace workspace = graph.forwardWorkspace();
+            int count = hierarchy.upwardSearch(sources[i], false, workspace);
+            int[] settled = workspace.vertexQueue();
+            for (int k = 0; k < count; k++) {
+                int vertex = settled[k];
+                double distance = workspace.distance(vertex);
+                for (int slot = bucketOffsets[vertex]; slot < bucketOffsets[vertex + 1]; slot++) {
+                    double viaVertex = distance + bucketDistances[slot];
+                    if (viaVertex < row[bucketTargets[slot]]) {
+                        row[bucketTargets[slot]] = viaVertex;
+                    }
+                }
+            }
+            matrix[i] = row;
+        });
+        return matrix;
+    }
+
+    /**
+     * Vertices settled by one backward upward search with their distances to the target
+     */
+    private static final class BucketEntries {
+        private final int[] vertices;
+        private final double[] distances;
+
+        BucketEntries(int[] vertices, double[] distances) {
+            this.vertices = vertices;
+            this.distances = distances;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package roadgraph;
+
+/**
+ * Great-circle (haversine) distance to the target in km, scaled by the smallest cost per
+ * km of the graph profile or by a given bound.
+ * <p>
+ * Road lengths are sums of the same great-circle distances between the points of
+ * the road geometry, so the estimate is admissible and consistent.
+ */
+final class GreatCircleHeuristic implements Heuristic {
+
+    /**
+     * Radius of the earth in kilometres, same as in {@link geography.GeographicPoint#distance}
+     */
+    private static final double EARTH_RADIUS = 6373;
+
+    private final CompactGraph graph;
+    private final double scale;
+    private final double targetLatitude;
+    private final double targetLongitude;
+    private final double targetLatitudeCosine;
+
+    GreatCircleHeuristic(CompactGraph graph, int target) {
+        this(graph, target, graph.minCostPerKm);
+    }
+
+    /**
+     * @param costPerKm lower bound of the cost of one km of any road
+     */
+    GreatCircleHeuristic(CompactGraph graph, int target, double costPerKm) {
+        this.graph = graph;
+        this.scale = 2 * EARTH_RADIUS * costPerKm;
+        this.targetLatitude = graph.latitudes[target];
+        this.targetLongitude = graph.longitudes[target];
+        this.targetLatitudeCosine = graph.latitudeCosines[target];
+    }
+
+    @Override
+    public double estimate(int vertex) {
+        double halfDeltaLatitude = Math.sin((targetLatitude - graph.latitudes[vertex]) / 2);
+        double halfDeltaLongitude = Math.sin((targetLongitude - graph.longitudes[vertex]) / 2);
+        double a = halfDeltaLatitude * halfDeltaLatitude
+                + graph.latitudeCosines[vertex] * targetLatitudeCosine * halfDeltaLongitude * halfDeltaLongitude;
+        return scale * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,13 @@
+package roadgraph;
+
+/**
+ * Lower bound of the remaining distance used to direct a search towards its target
+ */
+interface Heuristic {
+
+    /**
+     * Returns an estimate of the shortest distance from vertex to the target which
+     * never exceeds the real one
+     */
+    double estimate(int vertex);
+}
@@ -0,0 +1,205 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import util.GraphLoader;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Grader for the contraction hierarchy and the customizable contraction hierarchy:
+ * their routes between random crossroads must cost as much as Dijkstra's, on the
+ * loaded map and again after road updates, which rebuild the hierarchy and customize
+ * the customizable one again.
+ */
+public class HierarchyGrader implements Runnable {
+    public String feedback;
+
+    public int correct;
+
+    private static final String[] MAPS = {"data/graders/mod3/ucsd.map", "data/maps/new_york.map",
+            "data/maps/san_diego.map"};
+    private static final SearchAlgorithm[] ALGORITHMS = {SearchAlgorithm.CONTRACTION_HIERARCHY,
+            SearchAlgorithm.CUSTOMIZABLE_CONTRACTION_HIERARCHY};
+    private static final int PAIRS = 25;
+    private static final int UPDATED_ROUTES = 5;
+    private static final int TESTS = MAPS.length * 2 * ALGORITHMS.length;
+
+    /**
+     * Format readable feedback
+     */
+    public static String printOutput(double score, String feedback) {
+        return "Score: " + score + "\nFeedback: " + feedback;
+    }
+
+    /**
+     * Format test number and description
+     */
+    public static String appendFeedback(int num, String test) {
+        return "\n** Test #" + num + ": " + test + "...";
+    }
+
+    public static void main(String[] args) {
+        HierarchyGrader grader = new HierarchyGrader();
+
+        // Infinite loop detection
+        Thread thread = new Thread(grader);
+        thread.start();
+
+        // Allow it to run for 10 minutes, hierarchies of the larger maps take a while
+        long endTime = System.currentTimeMillis() + 600_000;
+        boolean infinite = false;
+        while (thread.isAlive()) {
+            if (System.currentTimeMillis() > endTime) {
+                // Stop the thread if it takes too long
+                thread.stop();
+                infinite = true;
+                break;
+            }
+        }
+        if (infinite) {
+            System.out.println(printOutput((double) grader.correct / TESTS, grader.feedback + "\nYour program entered an infinite loop."));
+        }
+    }
+
+    /**
+     * Compare both hierarchies with Dijkstra on the map, then update roads on some of the
+     * routes and compare again
+     *
+     * @param i    The map number
+     * @param file The file to read from
+     */
+    public void runTest(int i, String file) {
+        MapGraph graph = new MapGraph();
+        feedback += "\n\nMAP: " + file;
+        GraphLoader.loadRoadMap(file, graph);
+
+        List<GeographicPoint> crossroads = new ArrayList<>(graph.getVertices());
+        crossroads.sort(Comparator.comparingDouble(GeographicPoint::getX).thenComparingDouble(GeographicPoint::getY));
+        Random random = new Random(i);
+        GeographicPoint[][] pairs = new GeographicPoint[PAIRS][];
+        for (int p = 0; p < PAIRS; p++) {
+            pairs[p] = new GeographicPoint[]{crossroads.get(random.nextInt(crossroads.size())),
+                    crossroads.get(random.nextInt(crossroads.size()))};
+        }
+
+        int test = (i - 1) * 2 * ALGORITHMS.length;
+        for (SearchAlgorithm algorithm : ALGORITHMS) {
+            judge(++test, graph, algorithm, pairs, "on the loaded map");
+        }
+
+        // make the middle road of some routes three times as long, close another and
+        // restore one of the longer roads, so some roads also get shorter again
+        List<RoadUpdate> updates = new ArrayList<>();
+        List<RoadUpdate> restores = new ArrayList<>();
+        for (GeographicPoint[] pair : pairs) {
+            List<GeographicPoint> path = graph.dijkstra(pair[0], pair[1], (x) -> {
+            });
+            if (path == null || path.size() < 3 || updates.size() >= UPDATED_ROUTES) {
+                continue;
+            }
+            GeographicPoint from = path.get(path.size() / 2 - 1);
+            GeographicPoint to = path.get(path.size() / 2);
+            if (updates.isEmpty()) {
+                updates.add(RoadUpdate.close(from, to));
+            } else {
+                updates.add(RoadUpdate.weight(from, to, 3 * cost(graph, path.subList(path.size() / 2 - 1,
+                        path.size() / 2 + 1))));
+                if (restores.isEmpty()) {
+                    restores.add(RoadUpdate.restore(from, to));
+                }
+            }
+        }
+        graph.updateRoads(updates);
+        // build and customize the hierarchies on the updated weights before the restore
+        for (SearchAlgorithm algorithm : ALGORITHMS) {
+            graph.search(algorithm, pairs[0][0], pairs[0][1], (x) -> {
+            });
+        }
+        graph.updateRoads(restores);
+        for (SearchAlgorithm algorithm : ALGORITHMS) {
+            judge(++test, graph, algorithm, pairs, "after " + updates.size() + " road updates and "
+                    + restores.size() + " restore");
+        }
+    }
+
+    /**
+     * Compare the route costs of the algorithm with Dijkstra's on all pairs
+     *
+     * @param i         The test number
+     * @param graph     The map
+     * @param algorithm The hierarchy algorithm
+     * @param pairs     The start and goal pairs
+     * @param phase     Description of the state of the map
+     */
+    public void judge(int i, MapGraph graph, SearchAlgorithm algorithm, GeographicPoint[][] pairs, String phase) {
+        feedback += appendFeedback(i, "Comparing " + algorithm + " with Dijkstra " + phase);
+        for (GeographicPoint[] pair : pairs) {
+            List<GeographicPoint> expected = graph.dijkstra(pair[0], pair[1], (x) -> {
+            });
+            List<GeographicPoint> path = graph.search(algorithm, pair[0], pair[1], (x) -> {
+            });
+            double expectedCost = cost(graph, expected);
+            double pathCost = cost(graph, path);
+            boolean ends = path == null || path.get(0).equals(pair[0]) && path.get(path.size() - 1).equals(pair[1]);
+            if (!ends || (expected == null) != (path == null)
+                    || Math.abs(pathCost - expectedCost) > 1e-9 * Math.max(1, expectedCost)) {
+                feedback += "FAILED. From " + pair[0] + " to " + pair[1] + " expected cost " + expectedCost
+                        + "; got " + pathCost + (ends ? "." : " on a route with other ends.");
+                return;
+            }
+        }
+        feedback += "PASSED.";
+        correct++;
+    }
+
+    /**
+     * Returns the cost of the path on the cheapest roads between its crossroads in the
+     * current weights, infinity for null or a path along missing roads
+     */
+    private static double cost(MapGraph graph, List<GeographicPoint> path) {
+        if (path == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        CompactGraph frozen = graph.freeze();
+        Map<GeographicPoint, Integer> vertices = new HashMap<>();
+        for (int v = 0; v < frozen.vertexCount(); v++) {
+            vertices.put(frozen.crossroad(v), v);
+        }
+        double cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            cost += frozen.weight(vertices.get(path.get(i)), vertices.get(path.get(i + 1)));
+        }
+        return cost;
+    }
+
+    /**
+     * Run the grader
+     */
+    public void run() {
+        feedback = "";
+
+        correct = 0;
+
+        try {
+            for (int i = 0; i < MAPS.length; i++) {
+                runTest(i + 1, MAPS[i]);
+            }
+
+            if (correct == TESTS)
+                feedback = "All tests passed. Great job!" + feedback;
+            else
+                feedback = "Some tests failed. Check your code for errors, then try again:" + feedback;
+
+        } catch (Exception e) {
+            feedback += "\nError during runtime: " + e;
+            e.printStackTrace();
+        }
+
+        System.out.println(printOutput((double) correct / TESTS, feedback));
+    }
+}
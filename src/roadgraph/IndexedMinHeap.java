@@ -0,0 +1,157 @@
+package roadgraph;
+
+import java.util.Arrays;
+
+/**
+ * 4-ary min heap of vertex ids 0..capacity-1 ordered by a double key,
+ * supporting decrease-key without allocation
+ */
+final class IndexedMinHeap implements SearchQueue {
+
+    private static final int ARITY = 4;
+    private static final int ABSENT = -1;
+
+    /**
+     * Heap-ordered vertex ids
+     */
+    private final int[] heap;
+    /**
+     * Position of vertex in heap, ABSENT when vertex is not queued
+     */
+    private final int[] positions;
+    /**
+     * Key of every queued vertex
+     */
+    private final double[] keys;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return positions[vertex] != ABSENT;
+    }
+
+    /**
+     * Returns key of the queued vertex
+     */
+    @Override
+    public double key(int vertex) {
+        return keys[vertex];
+    }
+
+    /**
+     * Inserts vertex with the given key or lowers its key if it is already queued
+     * with a bigger one
+     */
+    @Override
+    public void insertOrDecrease(int vertex, double key) {
+        int position = positions[vertex];
+        if (position == ABSENT) {
+            keys[vertex] = key;
+            heap[size] = vertex;
+            positions[vertex] = size;
+            siftUp(size++);
+        } else if (key < keys[vertex]) {
+            keys[vertex] = key;
+            siftUp(position);
+        }
+    }
+
+    /**
+     * Returns key of the minimal vertex without removing it
+     */
+    @Override
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Removes and returns the vertex with minimal key
+     */
+    @Override
+    public int extractMin() {
+        int min = heap[0];
+        positions[min] = ABSENT;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all queued vertices, costs O(size) rather than O(capacity)
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int vertex = heap[position];
+        double key = keys[vertex];
+        while (position > 0) {
+            int parentPosition = (position - 1) / ARITY;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = vertex;
+        positions[vertex] = position;
+    }
+
+    private void siftDown(int position) {
+        int vertex = heap[position];
+        double key = keys[vertex];
+        for (; ; ) {
+            int firstChild = position * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int minPosition = firstChild;
+            double minKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                double childKey = keys[heap[child]];
+                if (childKey < minKey) {
+                    minKey = childKey;
+                    minPosition = child;
+                }
+            }
+            if (minKey >= key) {
+                break;
+            }
+            int child = heap[minPosition];
+            heap[position] = child;
+            positions[child] = position;
+            position = minPosition;
+        }
+        heap[position] = vertex;
+        positions[vertex] = position;
+    }
+}
@@ -0,0 +1,190 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Area reachable from a center crossroad within a road distance budget: the reachable
+ * crossroads, the roads leaving them which are only partially traversed before the budget
+ * runs out, and a concave hull outlining the area
+ */
+public class Isochrone {
+
+    private final GeographicPoint center;
+    private final double maxDistance;
+    private final List<GeographicPoint> crossroads;
+    private final List<PartialRoad> partialRoads;
+    private final List<GeographicPoint> hull;
+
+    private Isochrone(GeographicPoint center, double maxDistance, List<GeographicPoint> crossroads,
+                      List<PartialRoad> partialRoads, List<GeographicPoint> hull) {
+        this.center = center;
+        this.maxDistance = maxDistance;
+        this.crossroads = Collections.unmodifiableList(crossroads);
+        this.partialRoads = Collections.unmodifiableList(partialRoads);
+        this.hull = Collections.unmodifiableList(hull);
+    }
+
+    /**
+     * Dijkstra from the center which never queues crossroads beyond the budget, so its
+     * work is bounded by the size of the reachable area and not by the size of the graph
+     */
+    static Isochrone compute(CompactGraph graph, int center, double maxDistance) {
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
+        List<GeographicPoint> crossroads = new ArrayList<>();
+        List<PartialRoad> partialRoads = new ArrayList<>();
+        // ends of every traversed road or road part, the outline is drawn around them
+        List<GeographicPoint> segments = new ArrayList<>();
+        segments.add(graph.crossroad(center));
+        segments.add(graph.crossroad(center));
+
+        workspace.reach(center, 0, center);
+        queue.insertOrDecrease(center, 0);
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            crossroads.add(graph.crossroad(current));
+            double currentDistance = workspace.distance(current);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                if (graph.outWeights[e] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int neighbour = graph.outTargets[e];
+                double distance = currentDistance + graph.outWeights[e];
+                if (distance > maxDistance) {
+                    if (currentDistance < maxDistance) {
+                        PartialRoad road = new PartialRoad(graph.crossroad(current), graph.crossroad(neighbour),
+                                graph.roads[e].getRoadName(), graph.outWeights[e], maxDistance - currentDistance);
+                        partialRoads.add(road);
+                        segments.add(road.getStart());
+                        segments.add(road.getReachedPoint());
+                    }
+                    continue;
+                }
+                segments.add(graph.crossroad(current));
+                segments.add(graph.crossroad(neighbour));
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, current);
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+
+        return new Isochrone(graph.crossroad(center), maxDistance, crossroads, partialRoads,
+                ConcaveHull.compute(segments));
+    }
+
+    public GeographicPoint getCenter() {
+        return center;
+    }
+
+    /**
+     * Returns the road distance budget in km
+     */
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Returns crossroads reachable within the budget, in order of their distance from the center
+     */
+    public List<GeographicPoint> getCrossroads() {
+        return crossroads;
+    }
+
+    /**
+     * Returns roads leaving reachable crossroads whose other end is beyond the budget
+     */
+    public List<PartialRoad> getPartialRoads() {
+        return partialRoads;
+    }
+
+    /**
+     * Returns vertices of the polygon enclosing all traversed roads and road parts,
+     * counterclockwise and without repeating the first vertex
+     */
+    public List<GeographicPoint> getHull() {
+        return hull;
+    }
+
+    @Override
+    public String toString() {
+        return "Isochrone{center=" + center +
+                " maxDistance=" + maxDistance +
+                " crossroads=" + crossroads.size() +
+                " partialRoads=" + partialRoads.size() +
+                " hull=" + hull.size() + "}";
+    }
+
+    /**
+     * Road traversed from its start only up to the budget
+     */
+    public static class PartialRoad {
+
+        private final GeographicPoint start;
+        private final GeographicPoint end;
+        private final String roadName;
+        private final double length;
+        private final double reachedLength;
+
+        PartialRoad(GeographicPoint start, GeographicPoint end, String roadName,
+                    double length, double reachedLength) {
+            this.start = start;
+            this.end = end;
+            this.roadName = roadName;
+            this.length = length;
+            this.reachedLength = reachedLength;
+        }
+
+        /**
+         * Returns the reachable crossroad the road leaves
+         */
+        public GeographicPoint getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the crossroad the budget does not reach over this road
+         */
+        public GeographicPoint getEnd() {
+            return end;
+        }
+
+        public String getRoadName() {
+            return roadName;
+        }
+
+        /**
+         * Returns the full road length in km
+         */
+        public double getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the length in km traversed from the start before the budget runs out
+         */
+        public double getReachedLength() {
+            return reachedLength;
+        }
+
+        /**
+         * Returns the point where the budget runs out, interpolated on the straight line
+         * between the crossroads as the graph does not keep road geometry
+         */
+        public GeographicPoint getReachedPoint() {
+            double fraction = length == 0 ? 0 : reachedLength / length;
+            return new GeographicPoint(start.getX() + (end.getX() - start.getX()) * fraction,
+                    start.getY() + (end.getY() - start.getY()) * fraction);
+        }
+
+        @Override
+        public String toString() {
+            return "PartialRoad{" + roadName + " " + start + " -> " + end +
+                    " reached=" + reachedLength + "/" + length + "}";
+        }
+    }
+}
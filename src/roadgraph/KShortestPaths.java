@@ -0,0 +1,182 @@
+package roadgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Yen's algorithm for the k shortest loopless paths.
+ * <p>
+ * Every next path deviates from the last found one at some spur vertex: it shares the
+ * root path up to the spur vertex and continues with the shortest spur path that avoids
+ * the root path vertices and the roads from the spur vertex taken by already found paths
+ * with the same root. Spur searches of one round are independent and run in parallel,
+ * each on the pooled workspace of its thread.
+ */
+final class KShortestPaths {
+
+    private final CompactGraph graph;
+    private final int from;
+    private final int to;
+
+    KShortestPaths(CompactGraph graph, int from, int to) {
+        this.graph = graph;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param k maximal number of paths
+     * @return vertex ids of up to k shortest loopless paths from start to goal, shortest first
+     */
+    List<int[]> find(int k) {
+        List<Path> found = new ArrayList<>();
+        PriorityQueue<Path> candidates = new PriorityQueue<>();
+        Set<Path> seen = new HashSet<>();
+
+        Path shortest = spurPath(from, new int[0], 0, new int[0], 0);
+        if (shortest != null) {
+            found.add(shortest);
+            seen.add(shortest);
+        }
+        while (!found.isEmpty() && found.size() < k) {
+            Path last = found.get(found.size() - 1);
+            List<Path> spurPaths = IntStream.range(0, last.vertices.length - 1).parallel()
+                    .mapToObj(i -> deviation(found, last, i))
+                    .filter(path -> path != null)
+                    .collect(Collectors.toList());
+            for (Path path : spurPaths) {
+                if (seen.add(path)) {
+                    candidates.add(path);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            found.add(candidates.poll());
+        }
+
+        List<int[]> paths = new ArrayList<>(found.size());
+        for (Path path : found) {
+            paths.add(path.vertices);
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the shortest path deviating from the last path at its i-th vertex, or null
+     */
+    private Path deviation(List<Path> found, Path last, int i) {
+        int spur = last.vertices[i];
+        int[] blockedNext = new int[found.size()];
+        int blockedCount = 0;
+        for (Path path : found) {
+            if (path.vertices.length > i + 1 && sharesRoot(path, last, i)) {
+                blockedNext[blockedCount++] = path.vertices[i + 1];
+            }
+        }
+        return spurPath(spur, last.vertices, i, blockedNext, blockedCount);
+    }
+
+    private static boolean sharesRoot(Path path, Path last, int spurIndex) {
+        for (int j = 0; j <= spurIndex; j++) {
+            if (path.vertices[j] != last.vertices[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dijkstra from the spur vertex to the goal which avoids the root path and the given
+     * roads from the spur vertex, then prepends the root path
+     *
+     * @param root        path the spur vertex is the rootLength-th vertex of
+     * @param blockedNext vertices that must not follow the spur vertex
+     */
+    private Path spurPath(int spur, int[] root, int rootLength, int[] blockedNext, int blockedCount) {
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
+        double rootDistance = 0;
+        // closed marks are not used by Dijkstra, they flag root path vertices to avoid
+        for (int j = 0; j < rootLength; j++) {
+            workspace.close(root[j]);
+            rootDistance += graph.weight(root[j], root[j + 1]);
+        }
+
+        workspace.reach(spur, 0, spur);
+        queue.insertOrDecrease(spur, 0);
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            if (current == to) {
+                break;
+            }
+            double currentDistance = workspace.distance(current);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                if (workspace.isClosed(neighbour)
+                        || (current == spur && contains(blockedNext, blockedCount, neighbour))) {
+                    continue;
+                }
+                double distance = currentDistance + graph.outWeights[e];
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, current);
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+        if (!workspace.isReached(to)) {
+            return null;
+        }
+
+        int spurLength = 0;
+        for (int vertex = to; vertex != spur; vertex = workspace.parent(vertex)) {
+            spurLength++;
+        }
+        int[] vertices = Arrays.copyOf(root, rootLength + 1 + spurLength);
+        for (int vertex = to, index = vertices.length - 1; index >= rootLength; vertex = workspace.parent(vertex)) {
+            vertices[index--] = vertex;
+        }
+        return new Path(vertices, rootDistance + workspace.distance(to));
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Path implements Comparable<Path> {
+
+        final int[] vertices;
+        final double length;
+
+        Path(int[] vertices, double length) {
+            this.vertices = vertices;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            return Double.compare(length, other.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path && Arrays.equals(vertices, ((Path) o).vertices);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(vertices);
+        }
+    }
+}
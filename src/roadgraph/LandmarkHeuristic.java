@@ -0,0 +1,48 @@
+package roadgraph;
+
+/**
+ * ALT lower bound: the best triangle inequality bound over all landmarks, combined with
+ * the great-circle distance
+ */
+final class LandmarkHeuristic implements Heuristic {
+
+    private final Landmarks landmarks;
+    private final Heuristic greatCircle;
+    private final int count;
+    /**
+     * Distances from the target to every landmark and from every landmark to the target
+     */
+    private final double[] targetToLandmark;
+    private final double[] landmarkToTarget;
+
+    LandmarkHeuristic(CompactGraph graph, Landmarks landmarks, int target) {
+        this.landmarks = landmarks;
+        this.greatCircle = new GreatCircleHeuristic(graph, target);
+        this.count = landmarks.count();
+        targetToLandmark = new double[count];
+        landmarkToTarget = new double[count];
+        for (int i = 0; i < count; i++) {
+            targetToLandmark[i] = landmarks.toLandmark(target, i);
+            landmarkToTarget[i] = landmarks.fromLandmark(target, i);
+        }
+    }
+
+    @Override
+    public double estimate(int vertex) {
+        double best = greatCircle.estimate(vertex);
+        int base = vertex * count;
+        for (int i = 0; i < count; i++) {
+            // d(v, t) >= d(v, L) - d(t, L) and d(v, t) >= d(L, t) - d(L, v),
+            // differences of two unreachable distances are NaN and never win the comparison
+            double viaLandmark = landmarks.toLandmark[base + i] - targetToLandmark[i];
+            if (viaLandmark > best) {
+                best = viaLandmark;
+            }
+            double fromLandmark = landmarkToTarget[i] - landmarks.fromLandmark[base + i];
+            if (fromLandmark > best) {
+                best = fromLandmark;
+            }
+        }
+        return best;
+    }
+}
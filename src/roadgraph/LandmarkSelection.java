@@ -0,0 +1,16 @@
+package roadgraph;
+
+/**
+ * Strategy choosing landmarks for the ALT heuristic
+ */
+public enum LandmarkSelection {
+    /**
+     * Every next landmark is the crossroad farthest from the landmarks chosen so far
+     */
+    FARTHEST,
+    /**
+     * Every next landmark is a leaf of the shortest path tree subtree whose distances are
+     * worst covered by the landmarks chosen so far
+     */
+    AVOID
+}
@@ -0,0 +1,268 @@
+package roadgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Landmark distance tables for the ALT (A*, Landmarks, Triangle inequality) heuristic.
+ * <p>
+ * Tables are vertex-major: the distances of vertex v to and from landmark i are stored
+ * at index v * count + i, so one heuristic evaluation reads consecutive memory.
+ */
+final class Landmarks {
+
+    private static final int FILE_MAGIC = 0x414c5401;
+    private static final int NO_LANDMARK = -1;
+
+    private final int[] vertices;
+    /**
+     * Distance from every vertex to every landmark, d(v, L)
+     */
+    final double[] toLandmark;
+    /**
+     * Distance from every landmark to every vertex, d(L, v)
+     */
+    final double[] fromLandmark;
+    private final long fingerprint;
+
+    private Landmarks(int[] vertices, double[] toLandmark, double[] fromLandmark, long fingerprint) {
+        this.vertices = vertices;
+        this.toLandmark = toLandmark;
+        this.fromLandmark = fromLandmark;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Selects landmarks and computes their distance tables, the shortest path trees of
+     * different landmarks are built in parallel
+     *
+     * @param count     number of landmarks, limited by the number of vertices
+     * @param selection landmark selection strategy
+     */
+    static Landmarks select(CompactGraph graph, int count, LandmarkSelection selection) {
+        int n = graph.vertexCount();
+        count = Math.min(count, n);
+        int[] vertices = new int[count];
+        ShortestPathTree[] forwardTrees = new ShortestPathTree[count];
+        Random random = new Random(n);
+
+        for (int i = 0; i < count; i++) {
+            int landmark = NO_LANDMARK;
+            if (selection == LandmarkSelection.AVOID && i > 0) {
+                landmark = avoidLandmark(graph, vertices, forwardTrees, i, random.nextInt(n));
+            }
+            if (landmark == NO_LANDMARK) {
+                landmark = farthestLandmark(graph, forwardTrees, i, random.nextInt(n));
+            }
+            vertices[i] = landmark;
+            forwardTrees[i] = ShortestPathTree.forward(graph, landmark);
+        }
+
+        ShortestPathTree[] backwardTrees = IntStream.range(0, count).parallel()
+                .mapToObj(i -> ShortestPathTree.backward(graph, vertices[i]))
+                .toArray(ShortestPathTree[]::new);
+
+        double[] toLandmark = new double[n * count];
+        double[] fromLandmark = new double[n * count];
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < count; i++) {
+                toLandmark[v * count + i] = backwardTrees[i].distances[v];
+                fromLandmark[v * count + i] = forwardTrees[i].distances[v];
+            }
+        }
+        return new Landmarks(vertices, toLandmark, fromLandmark, fingerprint(graph));
+    }
+
+    /**
+     * Returns the vertex maximizing the minimal distance from the chosen landmarks, the
+     * first landmark is the vertex farthest from a random one
+     */
+    private static int farthestLandmark(CompactGraph graph, ShortestPathTree[] trees, int chosen, int seed) {
+        if (chosen == 0) {
+            ShortestPathTree tree = ShortestPathTree.forward(graph, seed);
+            int farthest = seed;
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                if (tree.isReachable(v) && tree.distances[v] > tree.distances[farthest]) {
+                    farthest = v;
+                }
+            }
+            return farthest;
+        }
+
+        int farthest = NO_LANDMARK;
+        double farthestDistance = -1;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            double distance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < chosen; i++) {
+                distance = Math.min(distance, trees[i].distances[v]);
+            }
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Avoid strategy: grows the shortest path tree of a random root, weighs every vertex
+     * by how much its distance exceeds the current landmark bound and descends into the
+     * heaviest subtree without landmarks down to a leaf
+     *
+     * @return the new landmark, or NO_LANDMARK when every subtree already holds a landmark
+     */
+    private static int avoidLandmark(CompactGraph graph, int[] landmarks, ShortestPathTree[] trees,
+                                     int chosen, int root) {
+        int n = graph.vertexCount();
+        ShortestPathTree tree = ShortestPathTree.forward(graph, root);
+
+        Integer[] order = IntStream.range(0, n)
+                .filter(tree::isReachable)
+                .boxed()
+                .toArray(Integer[]::new);
+        Arrays.sort(order, (a, b) -> Double.compare(tree.distances[b], tree.distances[a]));
+
+        double[] sizes = new double[n];
+        boolean[] covered = new boolean[n];
+        for (int i = 0; i < chosen; i++) {
+            covered[landmarks[i]] = true;
+        }
+        // children are processed before parents as they are farther from the root
+        for (int v : order) {
+            double bound = 0;
+            for (int i = 0; i < chosen; i++) {
+                double fromLandmark = trees[i].distances[v] - trees[i].distances[root];
+                if (fromLandmark > bound) {
+                    bound = fromLandmark;
+                }
+            }
+            sizes[v] += tree.distances[v] - bound;
+            if (covered[v]) {
+                sizes[v] = 0;
+            }
+            int parent = tree.parents[v];
+            if (parent != ShortestPathTree.NO_VERTEX) {
+                if (covered[v]) {
+                    covered[parent] = true;
+                }
+                sizes[parent] += sizes[v];
+            }
+        }
+        if (covered[root]) {
+            sizes[root] = 0;
+        }
+
+        int current = root;
+        for (; ; ) {
+            int heaviest = NO_LANDMARK;
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int child = graph.outTargets[e];
+                if (tree.parents[child] == current && !covered[child]
+                        && (heaviest == NO_LANDMARK || sizes[child] > sizes[heaviest])) {
+                    heaviest = child;
+                }
+            }
+            if (heaviest == NO_LANDMARK) {
+                break;
+            }
+            current = heaviest;
+        }
+        return covered[current] ? NO_LANDMARK : current;
+    }
+
+    int count() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the distance from vertex to landmark i
+     */
+    double toLandmark(int vertex, int i) {
+        return toLandmark[vertex * vertices.length + i];
+    }
+
+    /**
+     * Returns the distance from landmark i to vertex
+     */
+    double fromLandmark(int vertex, int i) {
+        return fromLandmark[vertex * vertices.length + i];
+    }
+
+    /**
+     * Returns true if tables were computed for a graph with the same vertices and roads
+     */
+    boolean matches(CompactGraph graph) {
+        return fingerprint == fingerprint(graph);
+    }
+
+    /**
+     * Stores tables in a binary file
+     */
+    void write(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeLong(fingerprint);
+            out.writeInt(vertices.length == 0 ? 0 : toLandmark.length / vertices.length);
+            out.writeInt(vertices.length);
+            for (int vertex : vertices) {
+                out.writeInt(vertex);
+            }
+            for (int i = 0; i < toLandmark.length; i++) {
+                out.writeDouble(toLandmark[i]);
+                out.writeDouble(fromLandmark[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads tables stored by {@link #write(String)}
+     *
+     * @throws IOException if file can not be read or has another format
+     */
+    static Landmarks read(String file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a landmarks file: " + file);
+            }
+            long fingerprint = in.readLong();
+            int n = in.readInt();
+            int count = in.readInt();
+            int[] vertices = new int[count];
+            for (int i = 0; i < count; i++) {
+                vertices[i] = in.readInt();
+            }
+            double[] toLandmark = new double[n * count];
+            double[] fromLandmark = new double[n * count];
+            for (int i = 0; i < toLandmark.length; i++) {
+                toLandmark[i] = in.readDouble();
+                fromLandmark[i] = in.readDouble();
+            }
+            return new Landmarks(vertices, toLandmark, fromLandmark, fingerprint);
+        }
+    }
+
+    /**
+     * Hash of vertex coordinates and roads in vertex id order, tables are only valid for
+     * a graph with the same fingerprint
+     */
+    static long fingerprint(CompactGraph graph) {
+        long hash = graph.vertexCount();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            hash = 31 * hash + Double.doubleToLongBits(graph.crossroads[v].getX());
+            hash = 31 * hash + Double.doubleToLongBits(graph.crossroads[v].getY());
+            for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+                hash = 31 * hash + graph.outTargets[e];
+                hash = 31 * hash + Double.doubleToLongBits(graph.outWeights[e]);
+            }
+        }
+        return hash;
+    }
+}
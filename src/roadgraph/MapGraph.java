@@ -8,21 +8,28 @@ package roadgraph;
 
 
 import geography.GeographicPoint;
+import geography.RoadSegment;
 import util.GraphLoader;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
-import static java.lang.Double.compare;
-
 /**
  * @author UCSD MOOC development team and YOU
  *         <p>
@@ -31,7 +38,54 @@ import static java.lang.Double.compare;
  */
 public class MapGraph {
 
+    private static final int DEFAULT_LANDMARK_COUNT = 8;
+
     private Map<GeographicPoint, Crossroad> crossroads = new HashMap<>();
+    /**
+     * Frozen CSR view of the crossroads, rebuilt lazily after the graph changes
+     */
+    private volatile CompactGraph compactGraph;
+    /**
+     * Contraction hierarchy over the frozen graph, built lazily on the first query
+     */
+    private volatile ContractionHierarchy contractionHierarchy;
+    /**
+     * Landmark distance tables of the ALT heuristic
+     */
+    private volatile Landmarks landmarks;
+    /**
+     * Edge-expanded graph of the last turn-aware search, built on demand
+     */
+    private volatile TurnGraph turnGraph;
+    /**
+     * Weight independent hierarchy, kept across road updates, and its latest
+     * customization for every profile
+     */
+    private volatile CustomizableContractionHierarchy customizableHierarchy;
+    private final Map<CostProfile, CustomizableContractionHierarchy.Metric> customizedMetrics =
+            new ConcurrentHashMap<>();
+    /**
+     * Weights of updated roads, applied again whenever the frozen graph is rebuilt
+     */
+    private final Map<Road, Double> roadWeights = new IdentityHashMap<>();
+    /**
+     * Priority queue of searches, applied to every frozen graph
+     */
+    private volatile SearchQueueType searchQueue = SearchQueueType.HEAP;
+    /**
+     * Numbering of crossroads in the frozen graph
+     */
+    private volatile VertexOrder vertexOrder = VertexOrder.HILBERT;
+    /**
+     * R-tree over the geometry of the road segments, kept across road updates since it
+     * only depends on the shape of the roads
+     */
+    private volatile RoadSegmentTree roadSegments;
+    /**
+     * Least recently used routes of {@link #search} and {@link #routeBatch}, null while
+     * caching is off
+     */
+    private volatile RouteCache routeCache;
 
     /**
      * Create a new empty MapGraph
@@ -88,6 +142,7 @@ public class MapGraph {
             return false;
         }
         crossroads.put(location, new Crossroad(location));
+        graphChanged();
         return true;
     }
 
@@ -106,7 +161,10 @@ public class MapGraph {
      */
     public void addEdge(GeographicPoint from, GeographicPoint to, String roadName,
                         String roadType, double length) throws IllegalArgumentException {
+        addRoad(from, to, roadName, roadType, length);
+    }
 
+    private Road addRoad(GeographicPoint from, GeographicPoint to, String roadName, String roadType, double length) {
         Road road = new Road(roadName, roadType, length);
 
         Crossroad fromCrossroad = find(from);
@@ -117,6 +175,361 @@ public class MapGraph {
 
         fromCrossroad.addOutRoad(road);
         road.setFromCrossroad(fromCrossroad);
+        graphChanged();
+        return road;
+    }
+
+    /**
+     * Drops structures derived from the previous state of the graph
+     */
+    private synchronized void graphChanged() {
+        compactGraph = null;
+        contractionHierarchy = null;
+        landmarks = null;
+        turnGraph = null;
+        customizableHierarchy = null;
+        customizedMetrics.clear();
+    }
+
+    /**
+     * Returns the frozen CSR view of this graph, building it if the graph
+     * was changed since the last call
+     */
+    CompactGraph freeze() {
+        CompactGraph graph = compactGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = compactGraph;
+                if (graph == null) {
+                    graph = withRoadWeights(new CompactGraph(
+                            Arrays.asList(VertexReordering.order(crossroads.values(), vertexOrder))));
+                    graph.useQueue(searchQueue);
+                    compactGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Selects the priority queue of the searches. The radix heap and Dial's buckets work
+     * on weights in fixed point millimetres and are exact for searches with non-negative
+     * weights and consistent heuristics, which all searches of this graph have. Which one
+     * is fastest depends on the map, {@link RouteResult#getQueueType()} reports the queue
+     * a batch used.
+     *
+     * @param type The queue type, {@link SearchQueueType#HEAP} by default
+     */
+    public synchronized void setSearchQueue(SearchQueueType type) {
+        searchQueue = type;
+        CompactGraph graph = compactGraph;
+        if (graph != null) {
+            graph.useQueue(type);
+        }
+    }
+
+    public SearchQueueType getSearchQueue() {
+        return searchQueue;
+    }
+
+    /**
+     * Selects the numbering of crossroads in the frozen graph. Searches read the arrays
+     * of neighbouring crossroads together, numbering them closely keeps those reads in
+     * the same cache lines. Changing the order rebuilds the graph and its preprocessing
+     * on the next query, landmark files only match the order they were computed in.
+     *
+     * @param order The vertex order, {@link VertexOrder#HILBERT} by default
+     */
+    public synchronized void setVertexOrder(VertexOrder order) {
+        if (order != vertexOrder) {
+            vertexOrder = order;
+            graphChanged();
+        }
+    }
+
+    public VertexOrder getVertexOrder() {
+        return vertexOrder;
+    }
+
+    /**
+     * Puts a cache of recent routes in front of {@link #search} and {@link #routeBatch},
+     * and of the searches which delegate to it, for workloads which repeat popular queries.
+     * Routes are keyed by the crossroads start and goal snap to, the algorithm and the cost
+     * profile, and dropped on road updates or changes of the graph. Routes answered from
+     * the cache settle no crossroads, so visualisers see nothing for them.
+     *
+     * @param maxRoutes The maximum number of cached routes, 0 turns caching off, which
+     *                  is the default
+     * @param maxBytes  The maximum estimated memory of the cached routes in bytes
+     */
+    public synchronized void setRouteCache(int maxRoutes, long maxBytes) {
+        routeCache = maxRoutes == 0 ? null : new RouteCache(maxRoutes, maxBytes);
+    }
+
+    /**
+     * Returns the counters of the route cache since it was set, all 0 while caching is off
+     */
+    public RouteCacheStatistics getRouteCacheStatistics() {
+        RouteCache cache = routeCache;
+        return cache == null ? new RouteCacheStatistics(0, 0, 0, 0, 0, 0) : cache.statistics();
+    }
+
+    private CompactGraph withRoadWeights(CompactGraph graph) {
+        if (roadWeights.isEmpty()) {
+            return graph;
+        }
+        int[] edges = new int[roadWeights.size()];
+        double[] weights = new double[roadWeights.size()];
+        int count = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            Double weight = roadWeights.get(graph.roads[e]);
+            if (weight != null) {
+                edges[count] = e;
+                weights[count++] = weight;
+            }
+        }
+        return graph.withWeights(Arrays.copyOf(edges, count), Arrays.copyOf(weights, count));
+    }
+
+    /**
+     * Changes weights of roads without rebuilding the graph. The new weights are copied
+     * into a new frozen graph which replaces the current one at once, so searches
+     * running meanwhile finish on the old weights. Cached shortest path trees are
+     * repaired incrementally, the contraction hierarchy and turn graph are built again on
+     * demand, landmarks only if some road became shorter, as their bounds stay valid
+     * when roads only get longer. The customizable hierarchy is only customized again.
+     * Updates persist when roads are added.
+     *
+     * @param updates The new weights, applied in order
+     * @throws IllegalArgumentException If there is no road between the crossroads of an
+     *                                  update or its weight is less than their great circle distance
+     */
+    public synchronized void updateRoads(List<RoadUpdate> updates) {
+        CompactGraph graph = freeze();
+        List<Integer> edges = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (RoadUpdate update : updates) {
+            int from = find(update.getStart()).getId();
+            int to = find(update.getEnd()).getId();
+            int[] roads = graph.edgesBetween(from, to);
+            if (roads.length == 0) {
+                throw new IllegalArgumentException("No road from " + update.getStart() + " to " + update.getEnd());
+            }
+            double distance = update.getStart().distance(update.getEnd());
+            if (!update.isRestore() && !(update.getWeight() >= distance * (1 - 1e-9))) {
+                throw new IllegalArgumentException("Road weight " + update.getWeight()
+                        + " is less than the distance " + distance + " of " + update);
+            }
+            for (int e : roads) {
+                edges.add(e);
+                weights.add(update.isRestore() ? graph.roads[e].getLength() : update.getWeight());
+            }
+        }
+
+        int[] changedEdges = new int[edges.size()];
+        double[] newWeights = new double[edges.size()];
+        boolean shorter = false;
+        for (int i = 0; i < changedEdges.length; i++) {
+            changedEdges[i] = edges.get(i);
+            newWeights[i] = weights.get(i);
+            shorter |= newWeights[i] < graph.outWeights[changedEdges[i]];
+            Road road = graph.roads[changedEdges[i]];
+            if (newWeights[i] == road.getLength()) {
+                roadWeights.remove(road);
+            } else {
+                roadWeights.put(road, newWeights[i]);
+            }
+        }
+        compactGraph = graph.withWeights(changedEdges, newWeights);
+        contractionHierarchy = null;
+        turnGraph = null;
+        customizedMetrics.clear();
+        if (shorter) {
+            landmarks = null;
+        }
+    }
+
+    /**
+     * Sets the weight of the roads from start to end, see {@link #updateRoads}
+     *
+     * @param weight The new weight in km, positive infinity closes the roads
+     */
+    public void updateRoad(GeographicPoint start, GeographicPoint end, double weight) {
+        updateRoads(Collections.singletonList(RoadUpdate.weight(start, end, weight)));
+    }
+
+    /**
+     * Closes the roads from start to end until they are restored
+     */
+    public void closeRoad(GeographicPoint start, GeographicPoint end) {
+        updateRoads(Collections.singletonList(RoadUpdate.close(start, end)));
+    }
+
+    /**
+     * Gives the roads from start to end back their lengths
+     */
+    public void restoreRoad(GeographicPoint start, GeographicPoint end) {
+        updateRoads(Collections.singletonList(RoadUpdate.restore(start, end)));
+    }
+
+    /**
+     * Finds the crossroad nearest to an arbitrary point. Searches snap start and goal
+     * points which are not crossroads the same way.
+     *
+     * @param point The location, need not be a crossroad
+     * @return The nearest crossroad, the point itself if it is one
+     * @throws IllegalStateException If the graph has no crossroads
+     */
+    public GeographicPoint nearestCrossroad(GeographicPoint point) {
+        CompactGraph graph = freeze();
+        return graph.crossroad(vertexOf(graph, point));
+    }
+
+    /**
+     * Finds the crossroads nearest to an arbitrary point on a grid over the crossroads
+     *
+     * @param point The location, need not be a crossroad
+     * @param k     The number of crossroads
+     * @return Up to k crossroads, nearest first
+     */
+    public List<GeographicPoint> nearestCrossroads(GeographicPoint point, int k) {
+        CompactGraph graph = freeze();
+        List<GeographicPoint> nearest = new ArrayList<>();
+        for (int vertex : graph.grid.nearest(point.getX(), point.getY(), k)) {
+            nearest.add(graph.crossroad(vertex));
+        }
+        return nearest;
+    }
+
+    /**
+     * Builds the R-tree over the road segment geometry for {@link #snapToRoad},
+     * {@link #roadSegmentsIn} and {@link #midEdgeSearch}
+     *
+     * @param roads The road segments at every crossroad, as the map loader fills them
+     */
+    public synchronized void prepareRoadSegments(Map<GeographicPoint, ? extends Collection<RoadSegment>> roads) {
+        roadSegments = new RoadSegmentTree(allSegments(roads));
+    }
+
+    /**
+     * Reads the R-tree over the road segment geometry from the file. If the file is
+     * missing or was stored for other roads, the tree is built again and stored to the file.
+     *
+     * @param file  The road segment tree file, usually stored next to the .map file
+     * @param roads The road segments at every crossroad, as the map loader fills them
+     */
+    public synchronized void prepareRoadSegments(String file,
+                                                 Map<GeographicPoint, ? extends Collection<RoadSegment>> roads) {
+        List<RoadSegment> segments = allSegments(roads);
+        try {
+            roadSegments = RoadSegmentTree.read(file, segments);
+            return;
+        } catch (IOException e) {
+            // missing, unreadable or stale file, the tree is built again
+        }
+
+        roadSegments = new RoadSegmentTree(segments);
+        try {
+            roadSegments.write(file);
+        } catch (IOException e) {
+            System.err.println("Problem storing road segment tree file: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    private static List<RoadSegment> allSegments(Map<GeographicPoint, ? extends Collection<RoadSegment>> roads) {
+        List<RoadSegment> segments = new ArrayList<>();
+        for (Collection<RoadSegment> atCrossroad : roads.values()) {
+            segments.addAll(atCrossroad);
+        }
+        return segments;
+    }
+
+    private RoadSegmentTree roadSegments() {
+        RoadSegmentTree tree = roadSegments;
+        if (tree == null) {
+            throw new IllegalStateException("Road segments are not prepared");
+        }
+        return tree;
+    }
+
+    /**
+     * Projects an arbitrary point onto the geometry of the nearest road segment
+     *
+     * @param point The location, need not be on a road
+     * @return The nearest position on a road segment
+     * @throws IllegalStateException If road segments are not prepared or there are none
+     */
+    public RoadPosition snapToRoad(GeographicPoint point) {
+        RoadPosition position = roadSegments().nearest(point.getX(), point.getY());
+        if (position == null) {
+            throw new IllegalStateException("No road segment to snap point " + point + " to");
+        }
+        return position;
+    }
+
+    /**
+     * Finds the road segments in a viewport
+     *
+     * @param corner         One corner of the viewport
+     * @param oppositeCorner The opposite corner of the viewport
+     * @return The segments whose bounding boxes intersect the viewport
+     * @throws IllegalStateException If road segments are not prepared
+     */
+    public List<RoadSegment> roadSegmentsIn(GeographicPoint corner, GeographicPoint oppositeCorner) {
+        return roadSegments().intersecting(corner.getX(), corner.getY(), oppositeCorner.getX(),
+                oppositeCorner.getY());
+    }
+
+    /**
+     * Finds the shortest route between the road positions nearest to start and goal. The
+     * route leaves the start position towards either end of its road segment and enters
+     * the goal segment from either end, paying for the parts of these roads it uses.
+     *
+     * @param start The starting location, need not be on a road
+     * @param goal  The goal location, need not be on a road
+     * @return The start position, the crossroads passed and the goal position, or null
+     * if the goal position can not be reached
+     * @throws IllegalStateException If road segments are not prepared
+     */
+    public List<GeographicPoint> midEdgeSearch(GeographicPoint start, GeographicPoint goal) {
+        RoadPosition from = snapToRoad(start);
+        RoadPosition to = snapToRoad(goal);
+        CompactGraph graph = freeze();
+        int[] vertices = MidEdgeSearch.route(graph, crossroads, from, to);
+        if (vertices == null) {
+            return null;
+        }
+        List<GeographicPoint> path = new ArrayList<>(vertices.length + 2);
+        path.add(from.getPoint());
+        for (int vertex : vertices) {
+            if (!graph.crossroad(vertex).equals(path.get(path.size() - 1))) {
+                path.add(graph.crossroad(vertex));
+            }
+        }
+        if (!to.getPoint().equals(path.get(path.size() - 1))) {
+            path.add(to.getPoint());
+        }
+        return path;
+    }
+
+    /**
+     * Returns the vertex of the crossroad at the point, or of the crossroad nearest to the
+     * point if there is none
+     */
+    private int vertexOf(CompactGraph graph, GeographicPoint point) {
+        Crossroad crossroad = crossroads.get(point);
+        if (crossroad != null) {
+            int vertex = graph.vertex(crossroad);
+            if (vertex != CrossroadGrid.NONE) {
+                return vertex;
+            }
+        }
+        int vertex = graph.grid.nearest(point.getX(), point.getY());
+        if (vertex == CrossroadGrid.NONE) {
+            throw new IllegalStateException("No crossroad to snap point " + point + " to");
+        }
+        return vertex;
     }
 
     private Crossroad find(GeographicPoint point) {
@@ -154,50 +567,25 @@ public class MapGraph {
      */
     public List<GeographicPoint> bfs(GeographicPoint start,
                                      GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(SearchAlgorithm.BFS, start, goal, visualiser);
+    }
 
-        Map<Crossroad, Crossroad> pathLinks = new HashMap<>();
-        Queue<Crossroad> queue = new LinkedList<>();
-        Crossroad current = find(start);
-        Crossroad goalCrossroad = find(goal);
-
-        while (true) {
-            visualiser.accept(current);
-            if (current.equals(goalCrossroad)) {
-                break;
-            }
-
-            Set<Crossroad> neighbours = current.getNeighbours();
-            neighbours.removeAll(pathLinks.values());
-
-            for (Crossroad neighbour : neighbours) {
-                pathLinks.put(neighbour, current);
-            }
-
-            queue.addAll(neighbours);
-            Crossroad next = queue.poll();
-
-            if (next == null) {
-                return null;
-            }
-
-            current = next;
+    private static List<GeographicPoint> bfs(CompactGraph graph, int from, int to,
+                                             Consumer<GeographicPoint> visualiser) {
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        if (DirectionOptimizingBfs.search(graph, workspace, from, to, visualiser)) {
+            return buildPath(graph, from, to, workspace);
         }
-        return buildPath(start, goal, pathLinks);
+        return null;
     }
 
-    private List<GeographicPoint> buildPath(GeographicPoint fromPoint, GeographicPoint toPoint,
-                                            Map<? extends Crossroad, ? extends Crossroad> pathLinks) {
+    private static List<GeographicPoint> buildPath(CompactGraph graph, int from, int to, SearchWorkspace workspace) {
         LinkedList<GeographicPoint> path = new LinkedList<>();
-        path.addFirst(find(toPoint));
-
-        while (true) {
-            if (fromPoint.equals(toPoint)) {
-                return path;
-            }
-            Crossroad next = pathLinks.get(toPoint);
-            path.addFirst(next);
-            toPoint = next;
+        for (int vertex = to; vertex != from; vertex = workspace.parent(vertex)) {
+            path.addFirst(graph.crossroad(vertex));
         }
+        path.addFirst(graph.crossroad(from));
+        return path;
     }
 
     /**
@@ -233,58 +621,36 @@ public class MapGraph {
      */
     public List<GeographicPoint> dijkstra(GeographicPoint start,
                                           GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
-        Map<PriorityCrossroad, PriorityCrossroad> fromTo = new HashMap<>();
-        PriorityQueue<PriorityCrossroad> queue = new PriorityQueue<>();
-
-        PriorityCrossroad current = new PriorityCrossroad(find(start), 0);
-        Crossroad goalCrossroad = find(goal);
-
-        queue.add(current);
-
-        for (; ; ) {
-            current = queue.poll();
-            visualiser.accept(current);
-
-            if (current.equals(goalCrossroad)) {
-                break;
-            }
-
-            double distanceFromStart = current.getDistance();
-            for (Road outRoad : current.getOutRoads()) {
-                PriorityCrossroad neighbour = new PriorityCrossroad(
-                        outRoad.getToCrossroad(), distanceFromStart + outRoad.getLength()
-                );
-
-                checkNeighbour(start, fromTo, queue, current, neighbour);
-            }
-        }
-        return buildPath(start, goal, fromTo);
+        return search(SearchAlgorithm.DIJKSTRA, start, goal, visualiser);
     }
 
-    private void checkNeighbour(GeographicPoint start, Map<PriorityCrossroad, PriorityCrossroad> fromTo,
-                                PriorityQueue<PriorityCrossroad> queue,
-                                PriorityCrossroad current,
-                                PriorityCrossroad neighbour) {
-        if (!fromTo.containsKey(neighbour)
-                && !start.equals(neighbour)) {
-            fromTo.put(neighbour, current);
-            queue.add(neighbour);
+    private static List<GeographicPoint> dijkstra(CompactGraph graph, int from, int to,
+                                                  Consumer<GeographicPoint> visualiser) {
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
 
-        } else {
-            for (Map.Entry<PriorityCrossroad, PriorityCrossroad> entry : fromTo.entrySet()) {
+        workspace.reach(from, 0, from);
+        queue.insertOrDecrease(from, 0);
 
-                PriorityCrossroad previousNeighbour = entry.getKey();
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            visualiser.accept(graph.crossroad(current));
 
-                if (previousNeighbour.equals(neighbour)
-                        && neighbour.hasHigherPriorityThan(previousNeighbour)
-                        && !start.equals(neighbour)) {
+            if (current == to) {
+                return buildPath(graph, from, to, workspace);
+            }
 
-                    fromTo.put(neighbour, current);
-                    queue.add(neighbour);
-                    break;
+            double currentDistance = workspace.distance(current);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                double distance = currentDistance + graph.outWeights[e];
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, current);
+                    queue.insertOrDecrease(neighbour, distance);
                 }
             }
         }
+        return null;
     }
 
     /**
@@ -320,72 +686,785 @@ public class MapGraph {
      */
     public List<GeographicPoint> aStarSearch(GeographicPoint start,
                                              GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
-        Map<PriorityCrossroad, PriorityCrossroad> fromTo = new HashMap<>();
-        PriorityQueue<PriorityCrossroad> queue = new PriorityQueue<>();
+        return search(SearchAlgorithm.A_STAR, start, goal, visualiser);
+    }
+
+    /**
+     * Find the path from start to goal using ALT search: A-Star with the landmark
+     * triangle inequality heuristic. Landmarks are selected with
+     * {@link LandmarkSelection#AVOID} unless they were prepared before.
+     *
+     * @param start The starting location
+     * @param goal  The goal location
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> altSearch(GeographicPoint start, GeographicPoint goal) {
+        AtomicInteger counter = new AtomicInteger();
+        Consumer<GeographicPoint> temp = (x) -> counter.incrementAndGet();
 
-        PriorityCrossroad current = new PriorityCrossroad(find(start), 0);
-        Crossroad goalCrossroad = find(goal);
+        List<GeographicPoint> path = altSearch(start, goal, temp);
+        System.out.println("ALT " + counter.get() + " nodes visited");
+        return path;
+    }
 
-        queue.add(current);
+    /**
+     * Find the path from start to goal using ALT search
+     *
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param visualiser A hook for visualization.  See assignment instructions for how to use it.
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> altSearch(GeographicPoint start,
+                                           GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(SearchAlgorithm.ALT, start, goal, visualiser);
+    }
 
-        for (; ; ) {
-            current = queue.poll();
-            visualiser.accept(current);
+    /**
+     * Selects landmarks for {@link #altSearch} and computes their distance tables
+     *
+     * @param count     The number of landmarks
+     * @param selection The landmark selection strategy
+     */
+    public synchronized void prepareLandmarks(int count, LandmarkSelection selection) {
+        landmarks = Landmarks.select(freeze(), count, selection);
+    }
 
-            if (current.equals(goalCrossroad)) {
-                break;
+    /**
+     * Reads landmark tables for {@link #altSearch} from the file. If the file is missing,
+     * was computed for another graph or with another landmark count, landmarks are
+     * selected again and stored to the file.
+     *
+     * @param file      The landmarks file, usually stored next to the .map file
+     * @param count     The number of landmarks
+     * @param selection The landmark selection strategy
+     */
+    public synchronized void prepareLandmarks(String file, int count, LandmarkSelection selection) {
+        CompactGraph graph = freeze();
+        try {
+            Landmarks stored = Landmarks.read(file);
+            if (stored.matches(graph) && stored.count() == Math.min(count, graph.vertexCount())) {
+                landmarks = stored;
+                return;
             }
+        } catch (IOException e) {
+            // missing or unreadable file, tables are computed again
+        }
+
+        landmarks = Landmarks.select(graph, count, selection);
+        try {
+            landmarks.write(file);
+        } catch (IOException e) {
+            System.err.println("Problem storing landmarks file: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    private static List<GeographicPoint> aStarSearch(CompactGraph graph, int from, int to, Heuristic heuristic,
+                                                     Consumer<GeographicPoint> visualiser) {
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
+
+        workspace.reach(from, 0, from);
+        queue.insertOrDecrease(from, heuristic.estimate(from));
+
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            workspace.close(current);
+            visualiser.accept(graph.crossroad(current));
 
-            double distanceFromStart = current.getDistance();
-            for (Road outRoad : current.getOutRoads()) {
-                PriorityCrossroad neighbour = new PriorityCrossroad(
-                        outRoad.getToCrossroad(), calculateLengthBetween(outRoad.getToCrossroad(), goalCrossroad)
-                );
+            if (current == to) {
+                return buildPath(graph, from, to, workspace);
+            }
 
-                checkNeighbour(start, fromTo, queue, current, neighbour);
+            double currentDistance = workspace.distance(current);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                if (workspace.isClosed(neighbour)) {
+                    continue;
+                }
+                double distance = currentDistance + graph.outWeights[e];
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, current);
+                    queue.insertOrDecrease(neighbour, distance + heuristic.estimate(neighbour));
+                }
             }
         }
-        return buildPath(start, goal, fromTo);
+        return null;
     }
 
-    private static double calculateLengthBetween(Crossroad fromCrossroad, Crossroad toCrossroad) {
-        return Math.abs(fromCrossroad.getX() - toCrossroad.getX())
-                + Math.abs(fromCrossroad.getY() - toCrossroad.getY());
+    /**
+     * Find the path from start to goal using bidirectional Dijkstra search
+     *
+     * @param start The starting location
+     * @param goal  The goal location
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> bidirectionalDijkstra(GeographicPoint start, GeographicPoint goal) {
+        AtomicInteger counter = new AtomicInteger();
+        Consumer<GeographicPoint> temp = (x) -> counter.incrementAndGet();
+
+        List<GeographicPoint> path = bidirectionalDijkstra(start, goal, temp);
+        System.out.println("BIDIRECTIONAL DIJKSTRA " + counter.get() + " nodes visited");
+        return path;
     }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder("MapGraph[\n");
-        for (Crossroad crossroad : crossroads.values()) {
-            sb.append('\t')
-                    .append(crossroad.asTextPoint())
-                    .append(" -> [")
-                    .append(crossroad.getNeighboursCommaSeparated())
-                    .append("]\n");
+    /**
+     * Find the path from start to goal using bidirectional Dijkstra search,
+     * forward from start over outgoing roads and backward from goal over incoming roads
+     *
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param visualiser A hook for visualization, receives crossroads settled by both searches
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> bidirectionalDijkstra(GeographicPoint start,
+                                                       GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(SearchAlgorithm.BIDIRECTIONAL_DIJKSTRA, start, goal, visualiser);
+    }
+
+    /**
+     * Find the path from start to goal using bidirectional A-Star search
+     *
+     * @param start The starting location
+     * @param goal  The goal location
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> bidirectionalAStarSearch(GeographicPoint start, GeographicPoint goal) {
+        AtomicInteger counter = new AtomicInteger();
+        Consumer<GeographicPoint> temp = (x) -> counter.incrementAndGet();
+
+        List<GeographicPoint> path = bidirectionalAStarSearch(start, goal, temp);
+        System.out.println("BIDIRECTIONAL A* " + counter.get() + " nodes visited");
+        return path;
+    }
+
+    /**
+     * Find the path from start to goal using bidirectional A-Star search
+     * with average great-circle potentials
+     *
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param visualiser A hook for visualization, receives crossroads settled by both searches
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> bidirectionalAStarSearch(GeographicPoint start,
+                                                          GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(SearchAlgorithm.BIDIRECTIONAL_A_STAR, start, goal, visualiser);
+    }
+
+    /**
+     * Find the path from start to goal using the contraction hierarchy of this graph.
+     * The hierarchy is built in parallel on the first call after the graph was changed.
+     *
+     * @param start The starting location
+     * @param goal  The goal location
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> contractionHierarchySearch(GeographicPoint start, GeographicPoint goal) {
+        AtomicInteger counter = new AtomicInteger();
+        Consumer<GeographicPoint> temp = (x) -> counter.incrementAndGet();
+
+        List<GeographicPoint> path = contractionHierarchySearch(start, goal, temp);
+        System.out.println("CONTRACTION HIERARCHY " + counter.get() + " nodes visited");
+        return path;
+    }
+
+    /**
+     * Find the path from start to goal using the contraction hierarchy of this graph
+     *
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param visualiser A hook for visualization, receives crossroads settled by both upward searches
+     * @return The list of crossroads that form the shortest path from
+     * start to goal (including both start and goal).
+     */
+    public List<GeographicPoint> contractionHierarchySearch(GeographicPoint start,
+                                                            GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(SearchAlgorithm.CONTRACTION_HIERARCHY, start, goal, visualiser);
+    }
+
+    /**
+     * Builds the contraction hierarchy of this graph unless it is already built
+     */
+    ContractionHierarchy prepareContractionHierarchy() {
+        ContractionHierarchy hierarchy = contractionHierarchy;
+        if (hierarchy == null) {
+            synchronized (this) {
+                hierarchy = contractionHierarchy;
+                if (hierarchy == null) {
+                    hierarchy = ContractionHierarchy.build(freeze());
+                    contractionHierarchy = hierarchy;
+                }
+            }
         }
-        return sb.append("]\n").toString();
+        return hierarchy;
+    }
+
+    /**
+     * Builds the weight independent customizable contraction hierarchy unless it is
+     * already built
+     */
+    CustomizableContractionHierarchy prepareCustomizableHierarchy() {
+        CustomizableContractionHierarchy hierarchy = customizableHierarchy;
+        if (hierarchy == null) {
+            synchronized (this) {
+                hierarchy = customizableHierarchy;
+                if (hierarchy == null) {
+                    hierarchy = CustomizableContractionHierarchy.build(freeze());
+                    customizableHierarchy = hierarchy;
+                }
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Customizes the customizable contraction hierarchy for the profile ahead of the first
+     * query with it. The weight independent part is built once; customizing for another
+     * profile or after road updates only recomputes shortcut weights, in parallel.
+     *
+     * @param profile The cost profile
+     */
+    public void customizeHierarchy(CostProfile profile) {
+        Preprocessing preprocessing = prepare(SearchAlgorithm.CUSTOMIZABLE_CONTRACTION_HIERARCHY);
+        customizedMetric(preprocessing.customizableHierarchy, preprocessing.graph.withProfile(profile));
+    }
+
+    /**
+     * Returns the customization for the weights of the graph, computing it if the profile
+     * was not customized yet or the roads were updated since
+     *
+     * @param hierarchy the hierarchy built for the topology of the graph
+     */
+    private CustomizableContractionHierarchy.Metric customizedMetric(CustomizableContractionHierarchy hierarchy,
+                                                                     CompactGraph graph) {
+        CustomizableContractionHierarchy.Metric metric = customizedMetrics.get(graph.profile);
+        if (metric == null || !metric.isFor(graph)) {
+            metric = hierarchy.customize(graph);
+            customizedMetrics.put(graph.profile, metric);
+        }
+        return metric;
+    }
+
+    /**
+     * Find the path from start to goal with the given algorithm
+     *
+     * @param algorithm  The search algorithm
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param visualiser A hook for visualization, receives every crossroad settled by the search
+     * @return The list of crossroads that form the path from
+     * start to goal (including both start and goal), or null if goal is unreachable.
+     */
+    public List<GeographicPoint> search(SearchAlgorithm algorithm, GeographicPoint start,
+                                        GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        return search(algorithm, RoutingProfile.DISTANCE, start, goal, visualiser);
+    }
+
+    /**
+     * Find the path from start to goal with the given algorithm, minimizing the cost of
+     * the given profile instead of the length. Profile weights are computed once per
+     * profile and reused by later searches until the graph changes.
+     *
+     * @param algorithm  The search algorithm, landmarks and contraction hierarchy are only
+     *                   built for {@link RoutingProfile#DISTANCE}, the customizable
+     *                   contraction hierarchy is customized for every profile
+     * @param profile    The cost profile
+     * @param start      The starting location, snapped to the nearest crossroad if it is none
+     * @param goal       The goal location, snapped to the nearest crossroad if it is none
+     * @param visualiser A hook for visualization, receives every crossroad settled by the search
+     * @return The list of crossroads that form the cheapest path from
+     * start to goal (including both start and goal), or null if goal is unreachable.
+     */
+    public List<GeographicPoint> search(SearchAlgorithm algorithm, CostProfile profile, GeographicPoint start,
+                                        GeographicPoint goal, Consumer<GeographicPoint> visualiser) {
+        if (profile != RoutingProfile.DISTANCE
+                && (algorithm == SearchAlgorithm.ALT || algorithm == SearchAlgorithm.CONTRACTION_HIERARCHY)) {
+            throw new IllegalArgumentException(algorithm + " only supports the " + RoutingProfile.DISTANCE + " profile");
+        }
+        Preprocessing preprocessing = prepare(algorithm);
+        CompactGraph graph = preprocessing.graph.withProfile(profile);
+        return cachedSearch(algorithm, profile, preprocessing, graph, vertexOf(graph, start), vertexOf(graph, goal),
+                visualiser);
+    }
+
+    /**
+     * Runs the algorithm on the view of the frozen graph for the profile unless the route
+     * cache holds its route
+     */
+    private List<GeographicPoint> cachedSearch(SearchAlgorithm algorithm, CostProfile profile,
+                                               Preprocessing preprocessing, CompactGraph graph, int from, int to,
+                                               Consumer<GeographicPoint> visualiser) {
+        RouteCache cache = routeCache;
+        if (cache == null) {
+            return search(algorithm, preprocessing, graph, from, to, visualiser);
+        }
+        CompactGraph base = preprocessing.graph;
+        int[] cached = cache.get(base, algorithm, profile, from, to);
+        if (cached != null) {
+            return cached.length == 0 ? null : toPath(graph, cached);
+        }
+        List<GeographicPoint> path = search(algorithm, preprocessing, graph, from, to, visualiser);
+        cache.put(base, algorithm, profile, from, to, path == null ? null : toVertices(graph, path));
+        return path;
+    }
+
+    /**
+     * Builds the preprocessing data the algorithm needs, unless it is already built, and
+     * returns it with the frozen graph it belongs to. Road updates replace the graph and
+     * drop preprocessing meanwhile, so searches only use the returned snapshot.
+     */
+    private Preprocessing prepare(SearchAlgorithm algorithm) {
+        switch (algorithm) {
+            case CONTRACTION_HIERARCHY: {
+                ContractionHierarchy hierarchy = prepareContractionHierarchy();
+                return new Preprocessing(hierarchy.graph(), hierarchy, null, null);
+            }
+            case CUSTOMIZABLE_CONTRACTION_HIERARCHY:
+                synchronized (this) {
+                    return new Preprocessing(freeze(), null, prepareCustomizableHierarchy(), null);
+                }
+            case ALT:
+                synchronized (this) {
+                    if (landmarks == null) {
+                        prepareLandmarks(DEFAULT_LANDMARK_COUNT, LandmarkSelection.AVOID);
+                    }
+                    return new Preprocessing(freeze(), null, null, landmarks);
+                }
+            default:
+                return new Preprocessing(freeze(), null, null, null);
+        }
+    }
+
+    /**
+     * Runs the algorithm on the frozen graph or one of its profile views with the
+     * preprocessing prepared for it. Goals in a later component than the start are
+     * rejected without searching.
+     */
+    private List<GeographicPoint> search(SearchAlgorithm algorithm, Preprocessing preprocessing, CompactGraph graph,
+                                         int from, int to, Consumer<GeographicPoint> visualiser) {
+        if (!graph.components().mayReach(from, to)) {
+            return null;
+        }
+        switch (algorithm) {
+            case BFS:
+                return bfs(graph, from, to, visualiser);
+            case DIJKSTRA:
+                return dijkstra(graph, from, to, visualiser);
+            case A_STAR:
+                return aStarSearch(graph, from, to, new GreatCircleHeuristic(graph, to), visualiser);
+            case ALT:
+                return aStarSearch(graph, from, to, new LandmarkHeuristic(graph, preprocessing.landmarks, to), visualiser);
+            case BIDIRECTIONAL_DIJKSTRA:
+                return toPath(graph, new BidirectionalSearch(graph, from, to, null, null).run(visualiser));
+            case BIDIRECTIONAL_A_STAR:
+                return toPath(graph, new BidirectionalSearch(graph, from, to,
+                        new GreatCircleHeuristic(graph, to), new GreatCircleHeuristic(graph, from)).run(visualiser));
+            case CONTRACTION_HIERARCHY:
+                return toPath(graph, preprocessing.contractionHierarchy.search(from, to, visualiser));
+            case CUSTOMIZABLE_CONTRACTION_HIERARCHY:
+                return toPath(graph, customizedMetric(preprocessing.customizableHierarchy, graph)
+                        .search(from, to, visualiser));
+            default:
+                throw new IllegalArgumentException("Unsupported search algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Find the shortest path from start to goal charging turn costs and respecting turn
+     * restrictions at crossroads
+     *
+     * @param start     The starting location
+     * @param goal      The goal location
+     * @param turnCosts The turn penalties and forbidden turns
+     * @return The list of crossroads that form the cheapest path from
+     * start to goal (including both start and goal), or null if goal is unreachable.
+     */
+    public List<GeographicPoint> turnAwareSearch(GeographicPoint start, GeographicPoint goal, TurnCosts turnCosts) {
+        Consumer<GeographicPoint> temp = (x) -> {
+        };
+        return turnAwareSearch(start, goal, RoutingProfile.DISTANCE, turnCosts, temp);
+    }
+
+    /**
+     * Find the cheapest path from start to goal with Dijkstra over the edge-expanded
+     * graph, whose vertices are roads and whose edges are allowed turns. The expanded
+     * graph is built on the first search and reused while the graph, the profile and the
+     * turn costs stay the same.
+     *
+     * @param start      The starting location
+     * @param goal       The goal location
+     * @param profile    The cost profile of roads
+     * @param turnCosts  The turn penalties and forbidden turns
+     * @param visualiser A hook for visualization, receives the ending crossroad of every settled road
+     * @return The list of crossroads that form the cheapest path from
+     * start to goal (including both start and goal), or null if goal is unreachable.
+     */
+    public List<GeographicPoint> turnAwareSearch(GeographicPoint start, GeographicPoint goal, CostProfile profile,
+                                                 TurnCosts turnCosts, Consumer<GeographicPoint> visualiser) {
+        CompactGraph graph = freeze().withProfile(profile);
+        TurnGraph turns = turnGraph;
+        if (turns == null || !turns.isCurrent(graph, turnCosts)) {
+            turns = new TurnGraph(graph, turnCosts);
+            turnGraph = turns;
+        }
+        int from = vertexOf(graph, start);
+        int to = vertexOf(graph, goal);
+        if (!graph.components().mayReach(from, to)) {
+            return null;
+        }
+        return toPath(graph, turns.search(from, to, visualiser));
+    }
+
+    /**
+     * Find the earliest arriving route from start to goal under time-dependent traffic
+     * with time-dependent A*
+     *
+     * @param start         The starting location
+     * @param goal          The goal location
+     * @param traffic       The speeds of road types by time of day
+     * @param departureTime The departure time in minutes after midnight, may exceed a day
+     * @return The route with arrival times at its crossroads, or null if goal is unreachable
+     */
+    public TimedRoute timeDependentSearch(GeographicPoint start, GeographicPoint goal,
+                                          TrafficPattern traffic, double departureTime) {
+        Consumer<GeographicPoint> temp = (x) -> {
+        };
+        return timeDependentSearch(SearchAlgorithm.A_STAR, start, goal, traffic, departureTime, temp);
+    }
+
+    /**
+     * Find the earliest arriving route from start to goal under time-dependent traffic.
+     * Road travel times are piecewise-linear functions of the time a road is entered,
+     * compiled once per road type for the query.
+     *
+     * @param algorithm     {@link SearchAlgorithm#DIJKSTRA} or {@link SearchAlgorithm#A_STAR}
+     * @param start         The starting location
+     * @param goal          The goal location
+     * @param traffic       The speeds of road types by time of day
+     * @param departureTime The departure time in minutes after midnight, may exceed a day
+     * @param visualiser    A hook for visualization, receives every crossroad settled by the search
+     * @return The route with arrival times at its crossroads, or null if goal is unreachable
+     */
+    public TimedRoute timeDependentSearch(SearchAlgorithm algorithm, GeographicPoint start, GeographicPoint goal,
+                                          TrafficPattern traffic, double departureTime,
+                                          Consumer<GeographicPoint> visualiser) {
+        if (algorithm != SearchAlgorithm.DIJKSTRA && algorithm != SearchAlgorithm.A_STAR) {
+            throw new IllegalArgumentException("Unsupported time-dependent search algorithm: " + algorithm);
+        }
+        CompactGraph graph = freeze();
+        int from = vertexOf(graph, start);
+        int to = vertexOf(graph, goal);
+        if (!graph.components().mayReach(from, to)) {
+            return null;
+        }
+        return TimeDependentSearch.run(graph, new TravelTimeFunctions(graph, traffic), from, to, departureTime,
+                algorithm == SearchAlgorithm.A_STAR, visualiser);
+    }
+
+    /**
+     * Finds routes for all queries in parallel. Points are resolved and preprocessing is
+     * built before the queries are fanned out, then every query runs on the same frozen
+     * snapshot of the graph and its preprocessing, road updates meanwhile apply to later
+     * queries only.
+     * Queries answered by the route cache report no settled crossroads.
+     *
+     * @param queries   The start and goal pairs
+     * @param algorithm The search algorithm
+     * @param executor  The executor running the queries, e.g. a {@link java.util.concurrent.ForkJoinPool};
+     *                  search state is pooled per thread, so pooled threads run allocation free
+     * @return The results in the order of queries
+     */
+    public List<RouteResult> routeBatch(List<RouteQuery> queries, SearchAlgorithm algorithm,
+                                        ExecutorService executor) {
+        Preprocessing preprocessing = prepare(algorithm);
+        CompactGraph graph = preprocessing.graph;
+        SearchQueueType queueType = graph.queueType();
+        int[] from = new int[queries.size()];
+        int[] to = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            from[i] = vertexOf(graph, queries.get(i).getStart());
+            to[i] = vertexOf(graph, queries.get(i).getGoal());
+        }
+
+        List<CompletableFuture<RouteResult>> futures = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            RouteQuery query = queries.get(i);
+            int start = from[i];
+            int goal = to[i];
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                int[] settled = new int[1];
+                long startTime = System.nanoTime();
+                List<GeographicPoint> path = cachedSearch(algorithm, RoutingProfile.DISTANCE, preprocessing, graph,
+                        start, goal, (x) -> settled[0]++);
+                return new RouteResult(query, path, System.nanoTime() - startTime, settled[0], queueType);
+            }, executor));
+        }
+
+        List<RouteResult> results = new ArrayList<>(queries.size());
+        for (CompletableFuture<RouteResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Finds routes for all queries in parallel on the common fork-join pool
+     *
+     * @see #routeBatch(List, SearchAlgorithm, ExecutorService)
+     */
+    public List<RouteResult> routeBatch(List<RouteQuery> queries, SearchAlgorithm algorithm) {
+        return routeBatch(queries, algorithm, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Find up to k shortest loopless routes from start to goal with Yen's algorithm.
+     * Spur searches deviating from the last found route run in parallel.
+     *
+     * @param start The starting location
+     * @param goal  The goal location
+     * @param k     The maximal number of routes
+     * @return The routes, each a list of crossroads from start to goal, shortest first;
+     * empty if goal is unreachable
+     */
+    public List<List<GeographicPoint>> kShortestPaths(GeographicPoint start, GeographicPoint goal, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of routes must be positive: " + k);
+        }
+        CompactGraph graph = freeze();
+        List<List<GeographicPoint>> routes = new ArrayList<>(k);
+        for (int[] vertices : new KShortestPaths(graph, vertexOf(graph, start), vertexOf(graph, goal)).find(k)) {
+            routes.add(toPath(graph, vertices));
+        }
+        return routes;
+    }
+
+    /**
+     * Find the shortest route and meaningfully different alternatives with the plateau
+     * method. All candidates come from one forward shortest path tree of the start and one
+     * backward shortest path tree of the goal.
+     *
+     * @param start           The starting location
+     * @param goal            The goal location
+     * @param maxAlternatives The maximal number of alternatives besides the shortest route
+     * @return The shortest route followed by the alternatives in order of preference, each
+     * a list of crossroads from start to goal; empty if goal is unreachable
+     */
+    public List<List<GeographicPoint>> alternativeRoutes(GeographicPoint start, GeographicPoint goal,
+                                                         int maxAlternatives) {
+        CompactGraph graph = freeze();
+        List<List<GeographicPoint>> routes = new ArrayList<>(maxAlternatives + 1);
+        for (int[] vertices : new AlternativeRoutes(graph, vertexOf(graph, start), vertexOf(graph, goal))
+                .find(maxAlternatives)) {
+            routes.add(toPath(graph, vertices));
+        }
+        return routes;
+    }
+
+    /**
+     * Computes shortest distances from the source to every target with the complete
+     * shortest path tree of the source. Trees of recent sources are cached and repaired
+     * after road updates, so repeated queries from the same source only read distances.
+     *
+     * @param source  The source location
+     * @param targets The target locations
+     * @return The distances in km in the order of targets, infinity for unreachable targets
+     */
+    public double[] distancesFrom(GeographicPoint source, List<GeographicPoint> targets) {
+        CompactGraph graph = freeze();
+        return DistanceMatrix.oneToMany(graph, vertexOf(graph, source), toVertices(graph, targets));
+    }
+
+    /**
+     * Computes shortest distances from the source to all crossroads with parallel
+     * delta-stepping, using the mean road length as bucket width
+     *
+     * @param source The source location
+     * @return The distances in km of all crossroads reachable from the source
+     */
+    public Map<GeographicPoint, Double> allDistancesFrom(GeographicPoint source) {
+        return allDistancesFrom(source, DeltaStepping.defaultDelta(freeze()));
+    }
+
+    /**
+     * Computes shortest distances from the source to all crossroads with parallel
+     * delta-stepping. Small bucket widths keep wasted relaxations low but need more
+     * phases, large widths give more parallel work per phase.
+     *
+     * @param source The source location
+     * @param delta  The bucket width in km
+     * @return The distances in km of all crossroads reachable from the source
+     */
+    public Map<GeographicPoint, Double> allDistancesFrom(GeographicPoint source, double delta) {
+        CompactGraph graph = freeze();
+        double[] distances = DeltaStepping.distances(graph, vertexOf(graph, source), delta);
+        Map<GeographicPoint, Double> reachable = new HashMap<>();
+        for (int v = 0; v < distances.length; v++) {
+            if (distances[v] != Double.POSITIVE_INFINITY) {
+                reachable.put(graph.crossroad(v), distances[v]);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Finds all crossroads reachable from the source over open roads with a parallel
+     * direction-optimizing breadth first search
+     *
+     * @param source The source location
+     * @return The reachable crossroads with the number of roads on their fewest road
+     * path from the source
+     */
+    public Map<GeographicPoint, Integer> reachableFrom(GeographicPoint source) {
+        CompactGraph graph = freeze();
+        int[] levels = DirectionOptimizingBfs.levels(graph, vertexOf(graph, source));
+        Map<GeographicPoint, Integer> reachable = new HashMap<>();
+        for (int v = 0; v < levels.length; v++) {
+            if (levels[v] != DirectionOptimizingBfs.UNREACHED) {
+                reachable.put(graph.crossroad(v), levels[v]);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns the number of strongly connected components of the open roads. Searches
+     * reject goals in components the start cannot lead to without exploring the graph.
+     *
+     * @return The number of components, every crossroad is in exactly one
+     */
+    public int getNumComponents() {
+        return freeze().components().count();
+    }
+
+    /**
+     * Builds a new graph of the largest strongly connected component of the open roads,
+     * in which every crossroad can reach every other. Fetched maps often have dangling
+     * fragments cut off at the border of the fetched area, which this prunes.
+     *
+     * @return A graph with the crossroads of the largest component and all roads between
+     * them, closed and updated roads keep their weights
+     */
+    public MapGraph largestStronglyConnectedComponent() {
+        MapGraph component = new MapGraph();
+        // the weights of the copied roads must be those the components were found with
+        synchronized (this) {
+            CompactGraph graph = freeze();
+            StronglyConnectedComponents components = graph.components();
+            int largest = components.largest();
+            component.searchQueue = searchQueue;
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                if (components.component(v) == largest) {
+                    component.addVertex(graph.crossroad(v));
+                }
+            }
+            for (int e = 0; e < graph.roads.length; e++) {
+                Road road = graph.roads[e];
+                if (components.component(graph.outTargets[e]) != largest
+                        || components.component(graph.edgeSource(e)) != largest) {
+                    continue;
+                }
+                Road copy = component.addRoad(road.getFromCrossroad(), road.getToCrossroad(), road.getRoadName(),
+                        road.getRoadType(), road.getLength());
+                Double weight = roadWeights.get(road);
+                if (weight != null) {
+                    component.roadWeights.put(copy, weight);
+                }
+            }
+        }
+        return component;
     }
 
-    private static class PriorityCrossroad extends Crossroad implements Comparable<PriorityCrossroad> {
-        private final double distance;
+    /**
+     * Computes the matrix of shortest distances between all sources and targets with
+     * a bucket based many-to-many search on the contraction hierarchy of this graph.
+     * Searches of different sources and of different targets run in parallel.
+     *
+     * @param sources The source locations
+     * @param targets The target locations
+     * @return The distances in km, rows in the order of sources and columns in the order
+     * of targets, infinity for unreachable pairs
+     */
+    public double[][] distanceMatrix(List<GeographicPoint> sources, List<GeographicPoint> targets) {
+        ContractionHierarchy hierarchy = prepareContractionHierarchy();
+        CompactGraph graph = hierarchy.graph();
+        return DistanceMatrix.manyToMany(graph, hierarchy, toVertices(graph, sources), toVertices(graph, targets));
+    }
 
-        PriorityCrossroad(Crossroad crossroad, double distance) {
-            super(crossroad);
-            this.distance = distance;
+    /**
+     * Finds everything reachable from the center within the road distance budget.
+     * The search never goes beyond the budget, so it only costs as much as the area it
+     * covers, and roads leaving the area are reported as partially traversed.
+     *
+     * @param center      The center location
+     * @param maxDistance The road distance budget in km
+     * @return The reachable crossroads, partial roads and the concave hull of the area
+     */
+    public Isochrone isochrone(GeographicPoint center, double maxDistance) {
+        if (maxDistance < 0 || Double.isNaN(maxDistance)) {
+            throw new IllegalArgumentException("Distance budget must not be negative: " + maxDistance);
         }
+        CompactGraph graph = freeze();
+        return Isochrone.compute(graph, vertexOf(graph, center), maxDistance);
+    }
 
-        private double getDistance() {
-            return distance;
+    private int[] toVertices(CompactGraph graph, List<GeographicPoint> points) {
+        int[] vertices = new int[points.size()];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = vertexOf(graph, points.get(i));
         }
+        return vertices;
+    }
 
-        private boolean hasHigherPriorityThan(PriorityCrossroad crossroad) {
-            return compareTo(crossroad) < 0;
+    private static List<GeographicPoint> toPath(CompactGraph graph, int[] vertices) {
+        if (vertices == null) {
+            return null;
+        }
+        List<GeographicPoint> path = new ArrayList<>(vertices.length);
+        for (int vertex : vertices) {
+            path.add(graph.crossroad(vertex));
         }
+        return path;
+    }
 
-        @Override
-        public int compareTo(PriorityCrossroad o) {
-            return compare(distance, o.distance);
+    /**
+     * Frozen graph with the preprocessing of one algorithm built for it
+     */
+    private static final class Preprocessing {
+
+        final CompactGraph graph;
+        final ContractionHierarchy contractionHierarchy;
+        final CustomizableContractionHierarchy customizableHierarchy;
+        final Landmarks landmarks;
+
+        Preprocessing(CompactGraph graph, ContractionHierarchy contractionHierarchy,
+                      CustomizableContractionHierarchy customizableHierarchy, Landmarks landmarks) {
+            this.graph = graph;
+            this.contractionHierarchy = contractionHierarchy;
+            this.customizableHierarchy = customizableHierarchy;
+            this.landmarks = landmarks;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MapGraph[\n");
+        for (Crossroad crossroad : crossroads.values()) {
+            sb.append('\t')
+                    .append(crossroad.asTextPoint())
+                    .append(" -> [")
+                    .append(crossroad.getNeighboursCommaSeparated())
+                    .append("]\n");
         }
+        return sb.append("]\n").toString();
     }
 
     public static void main(String[] args) {
@@ -430,6 +1509,10 @@ public class MapGraph {
         System.out.println("Test 3 using utc: Dijkstra should be 37 and AStar should be 10");
         result = testMap.dijkstra(testStart, testEnd);
         result = testMap.aStarSearch(testStart, testEnd);
+        result = testMap.bidirectionalDijkstra(testStart, testEnd);
+        result = testMap.bidirectionalAStarSearch(testStart, testEnd);
+        result = testMap.contractionHierarchySearch(testStart, testEnd);
+        result = testMap.altSearch(testStart, testEnd);
 
 		/* Use this code in Week 3 End of Week Quiz */
         MapGraph theMap = new MapGraph();
@@ -0,0 +1,151 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import geography.RoadSegment;
+
+import java.util.Map;
+
+/**
+ * Dijkstra's algorithm between positions in the middle of roads. The search starts from
+ * both crossroads at the ends of the start segment, each at the cost of the part of the
+ * road leading to it, and ends at whichever end of the goal segment gives the smaller
+ * total with the part of the road from that end to the goal. Roads are weighted by the
+ * frozen graph, so closed and updated roads apply to the partial roads too.
+ */
+final class MidEdgeSearch {
+
+    private static final int NONE = -1;
+
+    private MidEdgeSearch() {
+    }
+
+    /**
+     * Returns the crossroads of the shortest route from start to goal, an empty array if
+     * the goal lies ahead on the road of the start, null if it can not be reached
+     */
+    static int[] route(CompactGraph graph, Map<GeographicPoint, Crossroad> crossroads, RoadPosition start,
+                       RoadPosition goal) {
+        RoadSegment startSegment = start.getSegment();
+        int startFirst = vertex(graph, crossroads, startSegment.getPoint1());
+        int startSecond = vertex(graph, crossroads, startSegment.getPoint2());
+        double startFraction = fraction(start);
+        double toFirst = partial(weight(graph, startSecond, startFirst, startSegment), startFraction);
+        double toSecond = partial(weight(graph, startFirst, startSecond, startSegment), 1 - startFraction);
+
+        RoadSegment goalSegment = goal.getSegment();
+        int goalFirst = vertex(graph, crossroads, goalSegment.getPoint1());
+        int goalSecond = vertex(graph, crossroads, goalSegment.getPoint2());
+        double goalFraction = fraction(goal);
+        double fromFirst = partial(weight(graph, goalFirst, goalSecond, goalSegment), goalFraction);
+        double fromSecond = partial(weight(graph, goalSecond, goalFirst, goalSegment), 1 - goalFraction);
+
+        double best = Double.POSITIVE_INFINITY;
+        int bestEnd = NONE;
+        if (startSegment == goalSegment) {
+            best = goalFraction >= startFraction
+                    ? partial(weight(graph, startFirst, startSecond, startSegment), goalFraction - startFraction)
+                    : partial(weight(graph, startSecond, startFirst, startSegment), startFraction - goalFraction);
+        }
+
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
+        seed(workspace, queue, startFirst, toFirst);
+        seed(workspace, queue, startSecond, toSecond);
+
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            double currentDistance = workspace.distance(current);
+            if (currentDistance >= best) {
+                break;
+            }
+            if (current == goalFirst && currentDistance + fromFirst < best) {
+                best = currentDistance + fromFirst;
+                bestEnd = current;
+            }
+            if (current == goalSecond && currentDistance + fromSecond < best) {
+                best = currentDistance + fromSecond;
+                bestEnd = current;
+            }
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                double distance = currentDistance + graph.outWeights[e];
+                if (distance < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, distance, current);
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+
+        if (best == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        if (bestEnd == NONE) {
+            return new int[0];
+        }
+        IntList reversed = new IntList();
+        for (int vertex = bestEnd; ; vertex = workspace.parent(vertex)) {
+            reversed.add(vertex);
+            if (workspace.parent(vertex) == vertex) {
+                break;
+            }
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    private static void seed(SearchWorkspace workspace, SearchQueue queue, int vertex, double distance) {
+        if (vertex != NONE && distance < workspace.distance(vertex)) {
+            workspace.reach(vertex, distance, vertex);
+            queue.insertOrDecrease(vertex, distance);
+        }
+    }
+
+    /**
+     * Returns the vertex of the crossroad at the point in the searched graph, which may be
+     * older than the ids of the crossroads
+     */
+    private static int vertex(CompactGraph graph, Map<GeographicPoint, Crossroad> crossroads,
+                              GeographicPoint point) {
+        Crossroad crossroad = crossroads.get(point);
+        return crossroad == null ? NONE : graph.vertex(crossroad);
+    }
+
+    /**
+     * Returns the part of the segment length before the position
+     */
+    private static double fraction(RoadPosition position) {
+        double length = position.getSegment().getLength();
+        return length > 0 ? Math.max(0, Math.min(1, position.getOffset() / length)) : 0;
+    }
+
+    /**
+     * Returns the weight of the road from source to target of the length closest to the
+     * segment's, infinity if there is none
+     */
+    private static double weight(CompactGraph graph, int source, int target, RoadSegment segment) {
+        if (source == NONE || target == NONE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double weight = Double.POSITIVE_INFINITY;
+        double closest = Double.POSITIVE_INFINITY;
+        for (int e : graph.edgesBetween(source, target)) {
+            double difference = Math.abs(graph.roads[e].getLength() - segment.getLength());
+            if (difference < closest) {
+                closest = difference;
+                weight = graph.outWeights[e];
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the cost of the fraction of a road, nothing for no part of it even if the
+     * road is closed or missing
+     */
+    private static double partial(double weight, double fraction) {
+        return fraction == 0 ? 0 : weight * fraction;
+    }
+}
@@ -0,0 +1,212 @@
+package roadgraph;
+
+import java.util.Arrays;
+
+/**
+ * Base of monotone integer key queues: vertices sit in doubly linked bucket lists by
+ * their key in fixed point millimetres, rounded down. Keys below the last extracted
+ * one are raised to it, which only happens through rounding of heuristics.
+ * <p>
+ * Buckets order vertices by millimetre, within the minimal bucket the vertex with the
+ * smallest double key is taken, so the queue extracts in the same order as a heap.
+ */
+abstract class MonotoneBucketQueue implements SearchQueue {
+
+    /**
+     * Fixed point units per unit of weight, millimetres for weights in km
+     */
+    static final double FIXED_POINT_SCALE = 1e6;
+    static final int ABSENT = -1;
+
+    private final double[] keys;
+    private final long[] fixedKeys;
+    /**
+     * Bucket of every vertex, ABSENT when vertex is not queued
+     */
+    private final int[] slots;
+    private final int[] next;
+    private final int[] previous;
+    private int[] heads;
+    private int size;
+    /**
+     * Fixed key of the last extracted vertex, queued keys are not below it
+     */
+    long last;
+
+    MonotoneBucketQueue(int capacity, int buckets) {
+        keys = new double[capacity];
+        fixedKeys = new long[capacity];
+        slots = new int[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+        Arrays.fill(slots, ABSENT);
+        heads = new int[buckets];
+        Arrays.fill(heads, ABSENT);
+    }
+
+    /**
+     * Returns the bucket of a fixed key not below the last extracted one
+     */
+    abstract int bucketOf(long fixedKey);
+
+    /**
+     * Moves the vertices with the minimal fixed key into a bucket and returns it,
+     * the queue is not empty
+     */
+    abstract int minBucket();
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return slots[vertex] != ABSENT;
+    }
+
+    @Override
+    public double key(int vertex) {
+        return keys[vertex];
+    }
+
+    @Override
+    public void insertOrDecrease(int vertex, double key) {
+        if (slots[vertex] == ABSENT) {
+            size++;
+        } else if (key < keys[vertex]) {
+            unlink(vertex);
+        } else {
+            return;
+        }
+        keys[vertex] = key;
+        fixedKeys[vertex] = Math.max(last, (long) Math.floor(key * FIXED_POINT_SCALE));
+        link(vertex, bucketOf(fixedKeys[vertex]));
+    }
+
+    @Override
+    public double peekKey() {
+        return keys[minVertex(minBucket())];
+    }
+
+    @Override
+    public int extractMin() {
+        int vertex = minVertex(minBucket());
+        last = fixedKeys[vertex];
+        unlink(vertex);
+        size--;
+        return vertex;
+    }
+
+    @Override
+    public void clear() {
+        while (size > 0) {
+            size -= takeBucket(minBucket()).length;
+        }
+        last = 0;
+        cleared();
+    }
+
+    /**
+     * Called when {@link #clear()} emptied the queue, before the next search
+     */
+    void cleared() {
+    }
+
+    /**
+     * Called when the bucket becomes empty
+     */
+    void emptied(int bucket) {
+    }
+
+    /**
+     * Called when the bucket becomes nonempty
+     */
+    void filled(int bucket) {
+    }
+
+    boolean isEmpty(int bucket) {
+        return heads[bucket] == ABSENT;
+    }
+
+    int bucketCount() {
+        return heads.length;
+    }
+
+    long fixedKey(int vertex) {
+        return fixedKeys[vertex];
+    }
+
+    /**
+     * Removes all vertices of the bucket and returns them
+     */
+    int[] takeBucket(int bucket) {
+        IntList vertices = new IntList();
+        for (int vertex = heads[bucket]; vertex != ABSENT; vertex = next[vertex]) {
+            vertices.add(vertex);
+            slots[vertex] = ABSENT;
+        }
+        heads[bucket] = ABSENT;
+        emptied(bucket);
+        return vertices.toArray();
+    }
+
+    /**
+     * Links the vertex taken out by {@link #takeBucket} again, by its kept fixed key
+     */
+    void relink(int vertex) {
+        link(vertex, bucketOf(fixedKeys[vertex]));
+    }
+
+    /**
+     * Replaces the buckets with an empty array of the given length, queued vertices must
+     * have been taken out
+     */
+    void resize(int buckets) {
+        heads = new int[buckets];
+        Arrays.fill(heads, ABSENT);
+    }
+
+    private int minVertex(int bucket) {
+        int min = heads[bucket];
+        for (int vertex = next[min]; vertex != ABSENT; vertex = next[vertex]) {
+            if (keys[vertex] < keys[min]) {
+                min = vertex;
+            }
+        }
+        return min;
+    }
+
+    private void link(int vertex, int bucket) {
+        slots[vertex] = bucket;
+        previous[vertex] = ABSENT;
+        next[vertex] = heads[bucket];
+        if (heads[bucket] == ABSENT) {
+            filled(bucket);
+        } else {
+            previous[heads[bucket]] = vertex;
+        }
+        heads[bucket] = vertex;
+    }
+
+    private void unlink(int vertex) {
+        int bucket = slots[vertex];
+        if (previous[vertex] == ABSENT) {
+            heads[bucket] = next[vertex];
+        } else {
+            next[previous[vertex]] = next[vertex];
+        }
+        if (next[vertex] != ABSENT) {
+            previous[next[vertex]] = previous[vertex];
+        }
+        slots[vertex] = ABSENT;
+        if (heads[bucket] == ABSENT) {
+            emptied(bucket);
+        }
+    }
+}
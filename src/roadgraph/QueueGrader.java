@@ -0,0 +1,190 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import util.GraphLoader;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Grader for the priority queues: on every queue type each search algorithm must find
+ * routes of the same cost as Dijkstra's algorithm on the heap, for every routing profile
+ * the algorithm supports. BFS counts roads instead of weighing them and is left out.
+ */
+public class QueueGrader implements Runnable {
+    public String feedback;
+
+    public int correct;
+
+    private static final String[] MAPS = {"data/graders/mod3/ucsd.map", "data/maps/new_york.map",
+            "data/maps/san_diego.map"};
+    private static final int PAIRS = 25;
+    private static final int TESTS = MAPS.length * SearchQueueType.values().length * RoutingProfile.values().length;
+
+    /**
+     * Format readable feedback
+     */
+    public static String printOutput(double score, String feedback) {
+        return "Score: " + score + "\nFeedback: " + feedback;
+    }
+
+    /**
+     * Format test number and description
+     */
+    public static String appendFeedback(int num, String test) {
+        return "\n** Test #" + num + ": " + test + "...";
+    }
+
+    public static void main(String[] args) {
+        QueueGrader grader = new QueueGrader();
+
+        // Infinite loop detection
+        Thread thread = new Thread(grader);
+        thread.start();
+
+        // Allow it to run for 10 minutes, hierarchies of the larger maps take a while
+        long endTime = System.currentTimeMillis() + 600_000;
+        boolean infinite = false;
+        while (thread.isAlive()) {
+            if (System.currentTimeMillis() > endTime) {
+                // Stop the thread if it takes too long
+                thread.stop();
+                infinite = true;
+                break;
+            }
+        }
+        if (infinite) {
+            System.out.println(printOutput((double) grader.correct / TESTS, grader.feedback + "\nYour program entered an infinite loop."));
+        }
+    }
+
+    /**
+     * Compare all algorithms on all queue types and profiles with Dijkstra on the heap
+     *
+     * @param i    The map number
+     * @param file The file to read from
+     */
+    public void runTest(int i, String file) {
+        MapGraph graph = new MapGraph();
+        feedback += "\n\nMAP: " + file;
+        GraphLoader.loadRoadMap(file, graph);
+
+        List<GeographicPoint> crossroads = new ArrayList<>(graph.getVertices());
+        crossroads.sort(Comparator.comparingDouble(GeographicPoint::getX).thenComparingDouble(GeographicPoint::getY));
+        Random random = new Random(i);
+        GeographicPoint[][] pairs = new GeographicPoint[PAIRS][];
+        for (int p = 0; p < PAIRS; p++) {
+            pairs[p] = new GeographicPoint[]{crossroads.get(random.nextInt(crossroads.size())),
+                    crossroads.get(random.nextInt(crossroads.size()))};
+        }
+
+        // expected costs of every profile, found before any other queue type ran
+        graph.setSearchQueue(SearchQueueType.HEAP);
+        Map<RoutingProfile, double[]> expected = new HashMap<>();
+        for (RoutingProfile profile : RoutingProfile.values()) {
+            double[] costs = new double[PAIRS];
+            for (int p = 0; p < PAIRS; p++) {
+                costs[p] = cost(graph, profile, graph.search(SearchAlgorithm.DIJKSTRA, profile, pairs[p][0],
+                        pairs[p][1], (x) -> {
+                        }));
+            }
+            expected.put(profile, costs);
+        }
+
+        int test = (i - 1) * SearchQueueType.values().length * RoutingProfile.values().length;
+        for (SearchQueueType type : SearchQueueType.values()) {
+            graph.setSearchQueue(type);
+            for (RoutingProfile profile : RoutingProfile.values()) {
+                judge(++test, graph, type, profile, pairs, expected.get(profile));
+            }
+        }
+    }
+
+    /**
+     * Compare the route costs of all algorithms supporting the profile with the expected
+     * costs on all pairs
+     *
+     * @param i        The test number
+     * @param graph    The map, searching on the queue type
+     * @param type     The queue type
+     * @param profile  The routing profile
+     * @param pairs    The start and goal pairs
+     * @param expected The costs of Dijkstra's routes on the heap, infinity for unreachable goals
+     */
+    public void judge(int i, MapGraph graph, SearchQueueType type, RoutingProfile profile, GeographicPoint[][] pairs,
+                      double[] expected) {
+        feedback += appendFeedback(i, "Comparing all algorithms on " + type + " with the " + profile + " profile");
+        for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+            if (algorithm == SearchAlgorithm.BFS || profile != RoutingProfile.DISTANCE
+                    && (algorithm == SearchAlgorithm.ALT || algorithm == SearchAlgorithm.CONTRACTION_HIERARCHY)) {
+                continue;
+            }
+            for (int p = 0; p < pairs.length; p++) {
+                List<GeographicPoint> path = graph.search(algorithm, profile, pairs[p][0], pairs[p][1], (x) -> {
+                });
+                double pathCost = cost(graph, profile, path);
+                boolean ends = path == null
+                        || path.get(0).equals(pairs[p][0]) && path.get(path.size() - 1).equals(pairs[p][1]);
+                if (!ends || pathCost != expected[p]
+                        && !(Math.abs(pathCost - expected[p]) <= 1e-9 * Math.max(1, expected[p]))) {
+                    feedback += "FAILED. " + algorithm + " from " + pairs[p][0] + " to " + pairs[p][1]
+                            + " expected cost " + expected[p] + "; got " + pathCost
+                            + (ends ? "." : " on a route with other ends.");
+                    return;
+                }
+            }
+        }
+        feedback += "PASSED.";
+        correct++;
+    }
+
+    /**
+     * Returns the cost of the path in the profile on the cheapest roads between its
+     * crossroads, infinity for null
+     */
+    private static double cost(MapGraph graph, RoutingProfile profile, List<GeographicPoint> path) {
+        if (path == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        CompactGraph frozen = graph.freeze().withProfile(profile);
+        Map<GeographicPoint, Integer> vertices = new HashMap<>();
+        for (int v = 0; v < frozen.vertexCount(); v++) {
+            vertices.put(frozen.crossroad(v), v);
+        }
+        double cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            cost += frozen.weight(vertices.get(path.get(i)), vertices.get(path.get(i + 1)));
+        }
+        return cost;
+    }
+
+    /**
+     * Run the grader
+     */
+    public void run() {
+        feedback = "";
+
+        correct = 0;
+
+        try {
+            for (int i = 0; i < MAPS.length; i++) {
+                runTest(i + 1, MAPS[i]);
+            }
+
+            if (correct == TESTS)
+                feedback = "All tests passed. Great job!" + feedback;
+            else
+                feedback = "Some tests failed. Check your code for errors, then try again:" + feedback;
+
+        } catch (Exception e) {
+            feedback += "\nError during runtime: " + e;
+            e.printStackTrace();
+        }
+
+        System.out.println(printOutput((double) correct / TESTS, feedback));
+    }
+}
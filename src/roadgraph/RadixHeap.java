@@ -0,0 +1,44 @@
+package roadgraph;
+
+/**
+ * Radix heap of Ahuja, Mehlhorn, Orlin and Tarjan on 64 bit fixed point keys.
+ * <p>
+ * Bucket 0 holds keys equal to the last extracted one, bucket i > 0 the keys whose
+ * highest bit differing from it is bit i - 1. When bucket 0 runs empty the first
+ * nonempty bucket is emptied into lower ones against its minimal key, every vertex
+ * moves down at most 64 times between insertion and extraction.
+ */
+final class RadixHeap extends MonotoneBucketQueue {
+
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    RadixHeap(int capacity) {
+        super(capacity, BUCKETS);
+    }
+
+    @Override
+    int bucketOf(long fixedKey) {
+        return Long.SIZE - Long.numberOfLeadingZeros(fixedKey ^ last);
+    }
+
+    @Override
+    int minBucket() {
+        if (!isEmpty(0)) {
+            return 0;
+        }
+        int bucket = 1;
+        while (isEmpty(bucket)) {
+            bucket++;
+        }
+        int[] vertices = takeBucket(bucket);
+        long min = Long.MAX_VALUE;
+        for (int vertex : vertices) {
+            min = Math.min(min, fixedKey(vertex));
+        }
+        last = min;
+        for (int vertex : vertices) {
+            relink(vertex);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,58 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import geography.RoadSegment;
+
+/**
+ * Point of a road segment nearest to some location, the projection of the location onto
+ * the geometry of the segment
+ */
+public class RoadPosition {
+
+    private final RoadSegment segment;
+    private final GeographicPoint point;
+    private final double offset;
+    private final double distance;
+
+    RoadPosition(RoadSegment segment, GeographicPoint point, double offset, double distance) {
+        this.segment = segment;
+        this.point = point;
+        this.offset = offset;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the segment the position lies on
+     */
+    public RoadSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * Returns the projected point on the segment geometry
+     */
+    public GeographicPoint getPoint() {
+        return point;
+    }
+
+    /**
+     * Returns the distance along the segment geometry from its first end point in km
+     */
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the distance from the location to the projected point in km
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "RoadPosition{point=" + point +
+                " offset=" + offset +
+                " distance=" + distance + "}";
+    }
+}
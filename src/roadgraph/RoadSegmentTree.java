@@ -0,0 +1,428 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import geography.RoadSegment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Packed R-tree over the geometry of road segments for nearest road and bounding box
+ * queries, bulk loaded by Sort-Tile-Recursive (Leutenegger, Lopez and Edgington).
+ * <p>
+ * Points are projected equirectangularly like in {@link CrossroadGrid}. Segments are cut
+ * into vertical slices by the centers of their boxes, every slice is sorted by y and
+ * packed into full leaves of {@link #NODE_CAPACITY} segments, and the leaves are packed
+ * into parents the same way up to a single root. Nodes are numbered level by level from
+ * the leaves, so the root is the last one, and their children are packed like a CSR graph.
+ * <p>
+ * Segments are numbered in a canonical order of their end points, which lets a stored
+ * tree layout be read back for the same roads without sorting again.
+ */
+final class RoadSegmentTree {
+
+    private static final int FILE_MAGIC = 0x52535401;
+    private static final int NODE_CAPACITY = 16;
+    private static final double EARTH_RADIUS = 6373;
+
+    private final RoadSegment[] segments;
+    private final double cosine;
+    /**
+     * Projected points of segment s in km, from its first end point to its second, are
+     * xs[pointOffsets[s]..pointOffsets[s + 1]-1]
+     */
+    private final int[] pointOffsets;
+    private final double[] xs;
+    private final double[] ys;
+    /**
+     * Bounding boxes as minimum x, minimum y, maximum x and maximum y at index 4 * i
+     */
+    private final double[] segmentBoxes;
+    private final double[] nodeBoxes;
+    /**
+     * Node i has the children children[childOffsets[i]..childOffsets[i + 1]-1], segments
+     * for the leaves, the nodes below leafCount, and nodes for all others
+     */
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int leafCount;
+
+    /**
+     * Bulk loads a tree over the distinct segments
+     */
+    RoadSegmentTree(Collection<RoadSegment> segments) {
+        this(canonical(segments), null, null);
+    }
+
+    /**
+     * @param childOffsets stored tree layout, packed again if null
+     */
+    private RoadSegmentTree(RoadSegment[] segments, int[] childOffsets, int[] children) {
+        this.segments = segments;
+        int n = segments.length;
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        int pointCount = 0;
+        for (RoadSegment segment : segments) {
+            for (GeographicPoint point : polyline(segment)) {
+                minLatitude = Math.min(minLatitude, point.getX());
+                maxLatitude = Math.max(maxLatitude, point.getX());
+                pointCount++;
+            }
+        }
+        cosine = n == 0 ? 1 : Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+
+        pointOffsets = new int[n + 1];
+        xs = new double[pointCount];
+        ys = new double[pointCount];
+        segmentBoxes = new double[4 * n];
+        int p = 0;
+        for (int s = 0; s < n; s++) {
+            Arrays.fill(segmentBoxes, 4 * s, 4 * s + 2, Double.POSITIVE_INFINITY);
+            Arrays.fill(segmentBoxes, 4 * s + 2, 4 * s + 4, Double.NEGATIVE_INFINITY);
+            for (GeographicPoint point : polyline(segments[s])) {
+                xs[p] = projectX(point.getY());
+                ys[p] = projectY(point.getX());
+                include(segmentBoxes, s, xs[p], ys[p], xs[p], ys[p]);
+                p++;
+            }
+            pointOffsets[s + 1] = p;
+        }
+
+        leafCount = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        if (childOffsets == null) {
+            IntList offsets = new IntList();
+            IntList packed = new IntList(n);
+            pack(offsets, packed);
+            childOffsets = offsets.toArray();
+            children = packed.toArray();
+        }
+        this.childOffsets = childOffsets;
+        this.children = children;
+
+        int nodeCount = childOffsets.length - 1;
+        nodeBoxes = new double[4 * nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            Arrays.fill(nodeBoxes, 4 * node, 4 * node + 2, Double.POSITIVE_INFINITY);
+            Arrays.fill(nodeBoxes, 4 * node + 2, 4 * node + 4, Double.NEGATIVE_INFINITY);
+            double[] boxes = node < leafCount ? segmentBoxes : nodeBoxes;
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                int child = 4 * children[i];
+                include(nodeBoxes, node, boxes[child], boxes[child + 1], boxes[child + 2], boxes[child + 3]);
+            }
+        }
+    }
+
+    /**
+     * Returns every segment once, ordered by end points, name, type and length
+     */
+    static RoadSegment[] canonical(Collection<RoadSegment> segments) {
+        Set<RoadSegment> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(segments);
+        RoadSegment[] sorted = distinct.toArray(new RoadSegment[0]);
+        Arrays.sort(sorted, Comparator.<RoadSegment>comparingDouble(s -> s.getPoint1().getX())
+                .thenComparingDouble(s -> s.getPoint1().getY())
+                .thenComparingDouble(s -> s.getPoint2().getX())
+                .thenComparingDouble(s -> s.getPoint2().getY())
+                .thenComparing(RoadSegment::getRoadName, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(RoadSegment::getRoadType, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingDouble(RoadSegment::getLength)
+                .thenComparingInt(s -> s.getGeometryPoints().size()));
+        return sorted;
+    }
+
+    /**
+     * Packs the segments into leaves and every level into parents until one node is left
+     */
+    private void pack(IntList offsets, IntList packed) {
+        offsets.add(0);
+        double[] boxes = segmentBoxes;
+        int count = segments.length;
+        int firstItem = 0;
+        int nodeCount = 0;
+        while (count > 0) {
+            int[] order = sortTileRecursive(boxes, count);
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] parentBoxes = new double[4 * parents];
+            for (int parent = 0; parent < parents; parent++) {
+                Arrays.fill(parentBoxes, 4 * parent, 4 * parent + 2, Double.POSITIVE_INFINITY);
+                Arrays.fill(parentBoxes, 4 * parent + 2, 4 * parent + 4, Double.NEGATIVE_INFINITY);
+                int end = Math.min(count, (parent + 1) * NODE_CAPACITY);
+                for (int i = parent * NODE_CAPACITY; i < end; i++) {
+                    int item = 4 * order[i];
+                    packed.add(firstItem + order[i]);
+                    include(parentBoxes, parent, boxes[item], boxes[item + 1], boxes[item + 2], boxes[item + 3]);
+                }
+                offsets.add(packed.size());
+            }
+            firstItem = nodeCount;
+            nodeCount += parents;
+            if (parents == 1) {
+                return;
+            }
+            boxes = parentBoxes;
+            count = parents;
+        }
+    }
+
+    /**
+     * Returns the items ordered into slices of whole nodes by x, each sorted by y
+     */
+    private static int[] sortTileRecursive(double[] boxes, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // sums of the minimum and maximum, twice the centers
+        Arrays.sort(order, Comparator.comparingDouble(i -> boxes[4 * i] + boxes[4 * i + 2]));
+        int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = (nodes + slices - 1) / slices * NODE_CAPACITY;
+        for (int from = 0; from < count; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(count, from + sliceSize),
+                    Comparator.comparingDouble(i -> boxes[4 * i + 1] + boxes[4 * i + 3]));
+        }
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = order[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the position on the segment nearest to the point, null if there are no segments
+     *
+     * @param latitude  latitude in degrees
+     * @param longitude longitude in degrees
+     */
+    RoadPosition nearest(double latitude, double longitude) {
+        int nodeCount = childOffsets.length - 1;
+        if (nodeCount == 0) {
+            return null;
+        }
+        double x = projectX(longitude);
+        double y = projectY(latitude);
+        IndexedMinHeap heap = new IndexedMinHeap(nodeCount);
+        heap.insertOrDecrease(nodeCount - 1, boxDistance(nodeBoxes, nodeCount - 1, x, y));
+        double best = Double.POSITIVE_INFINITY;
+        int bestSegment = -1;
+        int bestPoint = 0;
+        double bestFraction = 0;
+
+        while (!heap.isEmpty() && heap.peekKey() < best) {
+            int node = heap.extractMin();
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                int child = children[i];
+                if (node >= leafCount) {
+                    double distance = boxDistance(nodeBoxes, child, x, y);
+                    if (distance < best) {
+                        heap.insertOrDecrease(child, distance);
+                    }
+                    continue;
+                }
+                if (boxDistance(segmentBoxes, child, x, y) >= best) {
+                    continue;
+                }
+                for (int p = pointOffsets[child]; p < pointOffsets[child + 1] - 1; p++) {
+                    double dx = xs[p + 1] - xs[p];
+                    double dy = ys[p + 1] - ys[p];
+                    double squaredLength = dx * dx + dy * dy;
+                    double fraction = squaredLength == 0 ? 0
+                            : ((x - xs[p]) * dx + (y - ys[p]) * dy) / squaredLength;
+                    fraction = Math.max(0, Math.min(1, fraction));
+                    double ex = xs[p] + fraction * dx - x;
+                    double ey = ys[p] + fraction * dy - y;
+                    double distance = ex * ex + ey * ey;
+                    if (distance < best) {
+                        best = distance;
+                        bestSegment = child;
+                        bestPoint = p - pointOffsets[child];
+                        bestFraction = fraction;
+                    }
+                }
+            }
+        }
+        return position(segments[bestSegment], bestPoint, bestFraction, new GeographicPoint(latitude, longitude));
+    }
+
+    /**
+     * Returns the position the fraction of the way along the piece of the segment geometry
+     * which starts at its point with the given index
+     */
+    private static RoadPosition position(RoadSegment segment, int piece, double fraction, GeographicPoint location) {
+        List<GeographicPoint> points = polyline(segment);
+        double offset = 0;
+        for (int i = 0; i < piece; i++) {
+            offset += points.get(i).distance(points.get(i + 1));
+        }
+        GeographicPoint start = points.get(piece);
+        GeographicPoint end = points.get(piece + 1);
+        GeographicPoint point = new GeographicPoint(start.getX() + fraction * (end.getX() - start.getX()),
+                start.getY() + fraction * (end.getY() - start.getY()));
+        return new RoadPosition(segment, point, offset + start.distance(point), point.distance(location));
+    }
+
+    /**
+     * Returns the segments whose bounding boxes intersect the box between the corners
+     *
+     * @param latitude1  latitude of one corner in degrees
+     * @param longitude1 longitude of one corner in degrees
+     * @param latitude2  latitude of the opposite corner in degrees
+     * @param longitude2 longitude of the opposite corner in degrees
+     */
+    List<RoadSegment> intersecting(double latitude1, double longitude1, double latitude2, double longitude2) {
+        List<RoadSegment> found = new ArrayList<>();
+        int nodeCount = childOffsets.length - 1;
+        if (nodeCount == 0) {
+            return found;
+        }
+        double minX = projectX(Math.min(longitude1, longitude2));
+        double maxX = projectX(Math.max(longitude1, longitude2));
+        double minY = projectY(Math.min(latitude1, latitude2));
+        double maxY = projectY(Math.max(latitude1, latitude2));
+        int[] stack = new int[nodeCount];
+        int size = 0;
+        if (intersects(nodeBoxes, nodeCount - 1, minX, minY, maxX, maxY)) {
+            stack[size++] = nodeCount - 1;
+        }
+        while (size > 0) {
+            int node = stack[--size];
+            double[] boxes = node < leafCount ? segmentBoxes : nodeBoxes;
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                int child = children[i];
+                if (!intersects(boxes, child, minX, minY, maxX, maxY)) {
+                    continue;
+                }
+                if (node < leafCount) {
+                    found.add(segments[child]);
+                } else {
+                    stack[size++] = child;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of distinct segments
+     */
+    int size() {
+        return segments.length;
+    }
+
+    /**
+     * Stores the tree layout in a binary file, segment geometry is taken from the map
+     * when it is read
+     */
+    void write(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeLong(fingerprint(segments));
+            out.writeInt(childOffsets.length);
+            for (int offset : childOffsets) {
+                out.writeInt(offset);
+            }
+            for (int child : children) {
+                out.writeInt(child);
+            }
+        }
+    }
+
+    /**
+     * Reads a tree stored by {@link #write(String)} over the same segments
+     *
+     * @throws IOException if file can not be read, has another format or was stored
+     *                     for other segments
+     */
+    static RoadSegmentTree read(String file, Collection<RoadSegment> segments) throws IOException {
+        RoadSegment[] sorted = canonical(segments);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a road segment tree file: " + file);
+            }
+            if (in.readLong() != fingerprint(sorted)) {
+                throw new IOException("Road segment tree of other roads: " + file);
+            }
+            int[] childOffsets = new int[in.readInt()];
+            for (int i = 0; i < childOffsets.length; i++) {
+                childOffsets[i] = in.readInt();
+            }
+            int[] children = new int[childOffsets.length == 0 ? 0 : childOffsets[childOffsets.length - 1]];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = in.readInt();
+            }
+            return new RoadSegmentTree(sorted, childOffsets, children);
+        }
+    }
+
+    /**
+     * Hash of the segments in canonical order, a stored layout is only valid for segments
+     * with the same fingerprint
+     */
+    static long fingerprint(RoadSegment[] segments) {
+        long hash = segments.length;
+        for (RoadSegment segment : segments) {
+            for (GeographicPoint point : polyline(segment)) {
+                hash = 31 * hash + Double.doubleToLongBits(point.getX());
+                hash = 31 * hash + Double.doubleToLongBits(point.getY());
+            }
+            hash = 31 * hash + Double.doubleToLongBits(segment.getLength());
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the points of the segment from its first end point to its second
+     */
+    private static List<GeographicPoint> polyline(RoadSegment segment) {
+        return segment.getPoints(segment.getPoint1(), segment.getPoint2());
+    }
+
+    private static void include(double[] boxes, int i, double minX, double minY, double maxX, double maxY) {
+        boxes[4 * i] = Math.min(boxes[4 * i], minX);
+        boxes[4 * i + 1] = Math.min(boxes[4 * i + 1], minY);
+        boxes[4 * i + 2] = Math.max(boxes[4 * i + 2], maxX);
+        boxes[4 * i + 3] = Math.max(boxes[4 * i + 3], maxY);
+    }
+
+    /**
+     * Returns the squared distance from the point to the box, 0 inside it
+     */
+    private static double boxDistance(double[] boxes, int i, double x, double y) {
+        double dx = Math.max(0, Math.max(boxes[4 * i] - x, x - boxes[4 * i + 2]));
+        double dy = Math.max(0, Math.max(boxes[4 * i + 1] - y, y - boxes[4 * i + 3]));
+        return dx * dx + dy * dy;
+    }
+
+    private static boolean intersects(double[] boxes, int i, double minX, double minY, double maxX, double maxY) {
+        return boxes[4 * i] <= maxX && minX <= boxes[4 * i + 2]
+                && boxes[4 * i + 1] <= maxY && minY <= boxes[4 * i + 3];
+    }
+
+    /**
+     * @param longitude longitude in degrees
+     */
+    private double projectX(double longitude) {
+        return Math.toRadians(longitude) * cosine * EARTH_RADIUS;
+    }
+
+    /**
+     * @param latitude latitude in degrees
+     */
+    private double projectY(double latitude) {
+        return Math.toRadians(latitude) * EARTH_RADIUS;
+    }
+}
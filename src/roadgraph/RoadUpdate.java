@@ -0,0 +1,70 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+/**
+ * New weight of the roads from one crossroad to another, applied with
+ * {@link MapGraph#updateRoads}
+ */
+public class RoadUpdate {
+
+    private final GeographicPoint start;
+    private final GeographicPoint end;
+    private final double weight;
+    private final boolean restore;
+
+    private RoadUpdate(GeographicPoint start, GeographicPoint end, double weight, boolean restore) {
+        this.start = start;
+        this.end = end;
+        this.weight = weight;
+        this.restore = restore;
+    }
+
+    /**
+     * Sets the weight of the roads, it must not be less than the great circle distance
+     * between the crossroads, which the A* heuristics rely on
+     *
+     * @param weight The new weight in km, positive infinity closes the roads
+     */
+    public static RoadUpdate weight(GeographicPoint start, GeographicPoint end, double weight) {
+        return new RoadUpdate(start, end, weight, false);
+    }
+
+    /**
+     * Closes the roads, searches do not use them until they are restored
+     */
+    public static RoadUpdate close(GeographicPoint start, GeographicPoint end) {
+        return new RoadUpdate(start, end, Double.POSITIVE_INFINITY, false);
+    }
+
+    /**
+     * Gives the roads back their lengths
+     */
+    public static RoadUpdate restore(GeographicPoint start, GeographicPoint end) {
+        return new RoadUpdate(start, end, Double.NaN, true);
+    }
+
+    public GeographicPoint getStart() {
+        return start;
+    }
+
+    public GeographicPoint getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the new weight in km, NaN for a restore
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    public boolean isRestore() {
+        return restore;
+    }
+
+    @Override
+    public String toString() {
+        return "RoadUpdate{" + start + " -> " + end + (restore ? " restore" : " weight=" + weight) + '}';
+    }
+}
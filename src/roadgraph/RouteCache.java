@@ -0,0 +1,141 @@
+package roadgraph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Bounded cache of search results in least recently used order, which evicts routes once
+ * either their number or their estimated memory exceeds its limit.
+ * <p>
+ * Routes are stored as vertex ids of the frozen graph they were found on. Road updates
+ * and changes of the graph always produce a new frozen graph, so the cache remembers the
+ * graph it was filled for and drops all routes when it is asked about another one.
+ */
+final class RouteCache {
+
+    /**
+     * Estimated bytes of a route besides its vertices: the map entry, the key and the
+     * array header
+     */
+    private static final int ROUTE_OVERHEAD = 112;
+    private static final int[] UNREACHABLE = new int[0];
+
+    private final int maxRoutes;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, int[]> routes = new LinkedHashMap<>(16, 0.75f, true);
+    private CompactGraph graph;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxRoutes maximum number of routes
+     * @param maxBytes  maximum estimated memory of the routes in bytes
+     */
+    RouteCache(int maxRoutes, long maxBytes) {
+        if (maxRoutes <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Route cache limits must be positive: " + maxRoutes + " routes, "
+                    + maxBytes + " bytes");
+        }
+        this.maxRoutes = maxRoutes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached route, an empty array if the goal was found unreachable, null if
+     * the route is not cached
+     *
+     * @param graph the frozen graph with the weights of the distance profile
+     */
+    synchronized int[] get(CompactGraph graph, SearchAlgorithm algorithm, CostProfile profile, int from, int to) {
+        useGraph(graph);
+        int[] route = routes.get(new Key(algorithm, profile, from, to));
+        if (route == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return route;
+    }
+
+    /**
+     * Caches the route found on the graph, null for an unreachable goal, and evicts the
+     * least recently used routes beyond the limits. A route larger than the memory limit
+     * is not cached.
+     */
+    synchronized void put(CompactGraph graph, SearchAlgorithm algorithm, CostProfile profile, int from, int to,
+                          int[] route) {
+        if (route == null) {
+            route = UNREACHABLE;
+        }
+        if (size(route) > maxBytes) {
+            return;
+        }
+        useGraph(graph);
+        int[] previous = routes.put(new Key(algorithm, profile, from, to), route);
+        if (previous != null) {
+            bytes -= size(previous);
+        }
+        bytes += size(route);
+        Iterator<int[]> eldest = routes.values().iterator();
+        while (routes.size() > maxRoutes || bytes > maxBytes) {
+            bytes -= size(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops the routes if they were found on another graph
+     */
+    private void useGraph(CompactGraph graph) {
+        if (this.graph != graph) {
+            if (!routes.isEmpty()) {
+                routes.clear();
+                invalidations++;
+            }
+            bytes = 0;
+            this.graph = graph;
+        }
+    }
+
+    synchronized RouteCacheStatistics statistics() {
+        return new RouteCacheStatistics(hits, misses, evictions, invalidations, routes.size(), bytes);
+    }
+
+    private static long size(int[] route) {
+        return ROUTE_OVERHEAD + (long) Integer.BYTES * route.length;
+    }
+
+    private static final class Key {
+
+        private final SearchAlgorithm algorithm;
+        private final CostProfile profile;
+        private final int from;
+        private final int to;
+
+        Key(SearchAlgorithm algorithm, CostProfile profile, int from, int to) {
+            this.algorithm = algorithm;
+            this.profile = profile;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return from == key.from && to == key.to && algorithm == key.algorithm && profile.equals(key.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(algorithm, profile, from, to);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package roadgraph;
+
+/**
+ * Counters of the route cache of a {@link MapGraph} since it was configured
+ */
+public class RouteCacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int routes;
+    private final long bytes;
+
+    RouteCacheStatistics(long hits, long misses, long evictions, long invalidations, int routes, long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.routes = routes;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns the number of searches answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of searches which had to run
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of searches answered from the cache, 0 before the first search
+     */
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Returns the number of routes dropped to stay within the limits
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns how often all routes were dropped because road weights or the graph changed
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of cached routes
+     */
+    public int getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Returns the estimated memory of the cached routes in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteCacheStatistics{hits=" + hits +
+                " misses=" + misses +
+                " evictions=" + evictions +
+                " invalidations=" + invalidations +
+                " routes=" + routes +
+                " bytes=" + bytes + "}";
+    }
+}
@@ -0,0 +1,30 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+/**
+ * Origin and destination of one route in a batch
+ */
+public class RouteQuery {
+
+    private final GeographicPoint start;
+    private final GeographicPoint goal;
+
+    public RouteQuery(GeographicPoint start, GeographicPoint goal) {
+        this.start = start;
+        this.goal = goal;
+    }
+
+    public GeographicPoint getStart() {
+        return start;
+    }
+
+    public GeographicPoint getGoal() {
+        return goal;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteQuery{" + start + " -> " + goal + '}';
+    }
+}
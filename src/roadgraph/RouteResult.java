@@ -0,0 +1,67 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.List;
+
+/**
+ * Route found for a {@link RouteQuery} with its search statistics
+ */
+public class RouteResult {
+
+    private final RouteQuery query;
+    private final List<GeographicPoint> path;
+    private final long latencyNanos;
+    private final int settledNodes;
+    private final SearchQueueType queueType;
+
+    RouteResult(RouteQuery query, List<GeographicPoint> path, long latencyNanos, int settledNodes,
+                SearchQueueType queueType) {
+        this.query = query;
+        this.path = path;
+        this.latencyNanos = latencyNanos;
+        this.settledNodes = settledNodes;
+        this.queueType = queueType;
+    }
+
+    public RouteQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns crossroads of the route including start and goal, or null if goal is unreachable
+     */
+    public List<GeographicPoint> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns time spent in the search, in nanoseconds
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Returns the number of crossroads the search settled
+     */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * Returns the priority queue the search ran on
+     */
+    public SearchQueueType getQueueType() {
+        return queueType;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteResult{" + query +
+                " crossroads=" + (path == null ? 0 : path.size()) +
+                " settled=" + settledNodes +
+                " queue=" + queueType +
+                " latency=" + latencyNanos / 1000 + "us}";
+    }
+}
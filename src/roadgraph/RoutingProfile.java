@@ -0,0 +1,70 @@
+package roadgraph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Built-in cost profiles
+ */
+public enum RoutingProfile implements CostProfile {
+    /**
+     * Road length in km
+     */
+    DISTANCE {
+        @Override
+        public double costPerKm(String roadType) {
+            return 1;
+        }
+    },
+    /**
+     * Travel time in minutes at typical speeds of the road type
+     */
+    TRAVEL_TIME {
+        @Override
+        public double costPerKm(String roadType) {
+            return 60 / speed(roadType);
+        }
+    },
+    /**
+     * Travel time in minutes with motorways and trunk roads forbidden
+     */
+    AVOID_MOTORWAY {
+        @Override
+        public double costPerKm(String roadType) {
+            if (roadType.startsWith("motorway") || roadType.startsWith("trunk")) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return 60 / speed(roadType);
+        }
+    };
+
+    private static final double DEFAULT_SPEED = 40;
+    /**
+     * Typical speeds in km/h by OpenStreetMap highway type
+     */
+    private static final Map<String, Double> SPEEDS = new HashMap<>();
+
+    static {
+        SPEEDS.put("motorway", 100.0);
+        SPEEDS.put("motorway_link", 60.0);
+        SPEEDS.put("trunk", 80.0);
+        SPEEDS.put("trunk_link", 50.0);
+        SPEEDS.put("primary", 60.0);
+        SPEEDS.put("primary_link", 45.0);
+        SPEEDS.put("secondary", 50.0);
+        SPEEDS.put("secondary_link", 40.0);
+        SPEEDS.put("tertiary", 40.0);
+        SPEEDS.put("tertiary_link", 35.0);
+        SPEEDS.put("unclassified", 30.0);
+        SPEEDS.put("residential", 30.0);
+        SPEEDS.put("living_street", 10.0);
+    }
+
+    /**
+     * Returns the typical speed of the road type in km/h
+     */
+    static double speed(String roadType) {
+        Double speed = SPEEDS.get(roadType);
+        return speed == null ? DEFAULT_SPEED : speed;
+    }
+}
@@ -0,0 +1,21 @@
+package roadgraph;
+
+/**
+ * Path search algorithms available on {@link MapGraph}
+ */
+public enum SearchAlgorithm {
+    BFS,
+    DIJKSTRA,
+    A_STAR,
+    /**
+     * A* with landmark triangle inequality heuristic
+     */
+    ALT,
+    BIDIRECTIONAL_DIJKSTRA,
+    BIDIRECTIONAL_A_STAR,
+    CONTRACTION_HIERARCHY,
+    /**
+     * Contraction hierarchy with a weight independent order, customized for every profile
+     */
+    CUSTOMIZABLE_CONTRACTION_HIERARCHY
+}
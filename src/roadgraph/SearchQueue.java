@@ -0,0 +1,40 @@
+package roadgraph;
+
+/**
+ * Indexed min priority queue of vertex ids 0..capacity-1 ordered by a double key,
+ * supporting decrease-key. Searches get it from their {@link SearchWorkspace}.
+ */
+interface SearchQueue {
+
+    boolean isEmpty();
+
+    int size();
+
+    boolean contains(int vertex);
+
+    /**
+     * Returns key of the queued vertex
+     */
+    double key(int vertex);
+
+    /**
+     * Inserts vertex with the given key or lowers its key if it is already queued
+     * with a bigger one
+     */
+    void insertOrDecrease(int vertex, double key);
+
+    /**
+     * Returns key of the minimal vertex without removing it
+     */
+    double peekKey();
+
+    /**
+     * Removes and returns the vertex with minimal key
+     */
+    int extractMin();
+
+    /**
+     * Removes all queued vertices
+     */
+    void clear();
+}
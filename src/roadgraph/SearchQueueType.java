@@ -0,0 +1,20 @@
+package roadgraph;
+
+/**
+ * Priority queues the searches of {@link MapGraph} can run on
+ */
+public enum SearchQueueType {
+    /**
+     * 4-ary heap on double keys, makes no assumption on keys
+     */
+    HEAP,
+    /**
+     * Radix heap on keys in fixed point millimetres, needs keys never below the last extracted one
+     */
+    RADIX_HEAP,
+    /**
+     * Dial's cyclic bucket queue on keys in fixed point millimetres, needs keys never below
+     * the last extracted one; buckets widen by powers of two to cover the queued key span
+     */
+    DIAL
+}
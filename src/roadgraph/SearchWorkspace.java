@@ -0,0 +1,131 @@
+package roadgraph;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per-thread state of one search direction: distances, parents, reached and
+ * closed marks, a FIFO array and a priority queue of the chosen {@link SearchQueueType},
+ * all sized to the vertex count. Queues of other types are created on first use.
+ * <p>
+ * Marks are generation stamps, so {@link #reset()} starts a new search without clearing
+ * the arrays. Values of a vertex are only meaningful once it is reached in the current
+ * generation.
+ */
+final class SearchWorkspace {
+
+    private final double[] distances;
+    private final int[] parents;
+    private final int[] reachedStamps;
+    private final int[] closedStamps;
+    private final int[] vertexQueue;
+    private final SearchQueue[] queues = new SearchQueue[SearchQueueType.values().length];
+    private SearchQueue queue;
+    private SearchQueueType queueType;
+    private int generation;
+
+    SearchWorkspace(int vertexCount) {
+        distances = new double[vertexCount];
+        parents = new int[vertexCount];
+        reachedStamps = new int[vertexCount];
+        closedStamps = new int[vertexCount];
+        vertexQueue = new int[vertexCount];
+        queueType = SearchQueueType.HEAP;
+        queue = new IndexedMinHeap(vertexCount);
+        queues[queueType.ordinal()] = queue;
+    }
+
+    /**
+     * Forgets the previous search and switches to a queue of the given type
+     */
+    void reset(SearchQueueType type) {
+        if (type != queueType) {
+            queue.clear();
+            queueType = type;
+            queue = queues[type.ordinal()];
+            if (queue == null) {
+                queue = newQueue(type, distances.length);
+                queues[type.ordinal()] = queue;
+            }
+        }
+        reset();
+    }
+
+    private static SearchQueue newQueue(SearchQueueType type, int capacity) {
+        switch (type) {
+            case HEAP:
+                return new IndexedMinHeap(capacity);
+            case RADIX_HEAP:
+                return new RadixHeap(capacity);
+            case DIAL:
+                return new DialQueue(capacity);
+            default:
+                throw new IllegalArgumentException("Unsupported queue type: " + type);
+        }
+    }
+
+    /**
+     * Forgets the previous search, costs O(1) apart from leftovers in the queue
+     */
+    void reset() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            generation = 0;
+        }
+        generation++;
+        queue.clear();
+    }
+
+    boolean isReached(int vertex) {
+        return reachedStamps[vertex] == generation;
+    }
+
+    /**
+     * Returns tentative distance of the vertex, infinity if it was not reached
+     */
+    double distance(int vertex) {
+        return reachedStamps[vertex] == generation ? distances[vertex] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the vertex the reached vertex was reached from
+     */
+    int parent(int vertex) {
+        return parents[vertex];
+    }
+
+    /**
+     * Records a new tentative distance and parent of the vertex
+     */
+    void reach(int vertex, double distance, int parent) {
+        reachedStamps[vertex] = generation;
+        distances[vertex] = distance;
+        parents[vertex] = parent;
+    }
+
+    boolean isClosed(int vertex) {
+        return closedStamps[vertex] == generation;
+    }
+
+    void close(int vertex) {
+        closedStamps[vertex] = generation;
+    }
+
+    /**
+     * Returns the priority queue, emptied by {@link #reset()}
+     */
+    SearchQueue queue() {
+        return queue;
+    }
+
+    SearchQueueType queueType() {
+        return queueType;
+    }
+
+    /**
+     * Returns an array of vertex count length for FIFO queues
+     */
+    int[] vertexQueue() {
+        return vertexQueue;
+    }
+}
@@ -0,0 +1,204 @@
+package roadgraph;
+
+import java.util.Arrays;
+
+/**
+ * Complete shortest path tree of a single vertex: distances and parents of every vertex,
+ * either from the root over outgoing roads or to the root over incoming roads
+ */
+final class ShortestPathTree {
+
+    static final int NO_VERTEX = -1;
+
+    final int root;
+    final boolean backward;
+    final double[] distances;
+    /**
+     * Next vertex towards the root, NO_VERTEX for the root and unreachable vertices
+     */
+    final int[] parents;
+
+    private ShortestPathTree(int root, boolean backward, double[] distances, int[] parents) {
+        this.root = root;
+        this.backward = backward;
+        this.distances = distances;
+        this.parents = parents;
+    }
+
+    /**
+     * Builds the tree of shortest paths from root to all vertices
+     */
+    static ShortestPathTree forward(CompactGraph graph, int root) {
+        return build(graph, root, false);
+    }
+
+    /**
+     * Builds the tree of shortest paths from all vertices to root
+     */
+    static ShortestPathTree backward(CompactGraph graph, int root) {
+        return build(graph, root, true);
+    }
+
+    private static ShortestPathTree build(CompactGraph graph, int root, boolean backward) {
+        int n = graph.vertexCount();
+        double[] distances = new double[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int[] parents = new int[n];
+        Arrays.fill(parents, NO_VERTEX);
+        int[] offsets = backward ? graph.inOffsets : graph.outOffsets;
+        int[] neighbours = backward ? graph.inSources : graph.outTargets;
+        double[] weights = backward ? graph.inWeights : graph.outWeights;
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+
+        distances[root] = 0;
+        queue.insertOrDecrease(root, 0);
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbour = neighbours[e];
+                double distance = distances[current] + weights[e];
+                if (distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    parents[neighbour] = current;
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+        return new ShortestPathTree(root, backward, distances, parents);
+    }
+
+    /**
+     * Returns this tree repaired after roads were reweighted, leaving this tree unchanged.
+     * As in the dynamic algorithm of Ramalingam and Reps only vertices whose distance may
+     * change are searched again: subtrees hanging on tree roads that became longer are
+     * detached and entered again from their boundary, then roads that became shorter are
+     * relaxed, and a single Dijkstra propagates both from the queued vertices.
+     *
+     * @param previous graph this tree was built for
+     * @param graph    graph with the new weights
+     * @param edges    forward edge ids of the reweighted roads
+     */
+    ShortestPathTree repair(CompactGraph previous, CompactGraph graph, int[] edges) {
+        int n = this.distances.length;
+        double[] distances = this.distances.clone();
+        int[] parents = this.parents.clone();
+        int[] offsets = backward ? graph.inOffsets : graph.outOffsets;
+        int[] neighbours = backward ? graph.inSources : graph.outTargets;
+        double[] weights = backward ? graph.inWeights : graph.outWeights;
+        int[] reverseOffsets = backward ? graph.outOffsets : graph.inOffsets;
+        int[] reverseNeighbours = backward ? graph.outTargets : graph.inSources;
+        double[] reverseWeights = backward ? graph.outWeights : graph.inWeights;
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+
+        // roads in the direction of the tree, from tail towards head away from the root
+        int[] tails = new int[edges.length];
+        int[] heads = new int[edges.length];
+        int[] detachedRoots = new int[edges.length];
+        int rootCount = 0;
+        for (int i = 0; i < edges.length; i++) {
+            int source = graph.edgeSource(edges[i]);
+            int target = graph.outTargets[edges[i]];
+            tails[i] = backward ? target : source;
+            heads[i] = backward ? source : target;
+            if (graph.outWeights[edges[i]] > previous.outWeights[edges[i]] && parents[heads[i]] == tails[i]
+                    && distances[tails[i]] + graph.weight(source, target)
+                    > distances[heads[i]]) {
+                detachedRoots[rootCount++] = heads[i];
+            }
+        }
+
+        if (rootCount > 0) {
+            boolean[] detached = new boolean[n];
+            int[] subtree = detach(parents, detachedRoots, rootCount, detached);
+            for (int vertex : subtree) {
+                distances[vertex] = Double.POSITIVE_INFINITY;
+                parents[vertex] = NO_VERTEX;
+            }
+            for (int vertex : subtree) {
+                for (int e = reverseOffsets[vertex]; e < reverseOffsets[vertex + 1]; e++) {
+                    int neighbour = reverseNeighbours[e];
+                    double distance = distances[neighbour] + reverseWeights[e];
+                    if (!detached[neighbour] && distance < distances[vertex]) {
+                        distances[vertex] = distance;
+                        parents[vertex] = neighbour;
+                    }
+                }
+                if (distances[vertex] != Double.POSITIVE_INFINITY) {
+                    queue.insertOrDecrease(vertex, distances[vertex]);
+                }
+            }
+        }
+
+        for (int i = 0; i < edges.length; i++) {
+            double distance = distances[tails[i]] + graph.outWeights[edges[i]];
+            if (graph.outWeights[edges[i]] < previous.outWeights[edges[i]] && distance < distances[heads[i]]) {
+                distances[heads[i]] = distance;
+                parents[heads[i]] = tails[i];
+                queue.insertOrDecrease(heads[i], distance);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbour = neighbours[e];
+                double distance = distances[current] + weights[e];
+                if (distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    parents[neighbour] = current;
+                    queue.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+        return new ShortestPathTree(root, backward, distances, parents);
+    }
+
+    /**
+     * Marks the given vertices and all their descendants
+     *
+     * @return the marked vertices
+     */
+    private static int[] detach(int[] parents, int[] roots, int rootCount, boolean[] detached) {
+        int n = parents.length;
+        int[] childOffsets = new int[n + 1];
+        for (int parent : parents) {
+            if (parent != NO_VERTEX) {
+                childOffsets[parent + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childOffsets[v + 1] += childOffsets[v];
+        }
+        int[] children = new int[childOffsets[n]];
+        int[] fill = childOffsets.clone();
+        for (int v = 0; v < n; v++) {
+            if (parents[v] != NO_VERTEX) {
+                children[fill[parents[v]]++] = v;
+            }
+        }
+
+        // the list of marked vertices doubles as the queue of vertices whose children are not marked yet
+        int[] subtree = new int[n];
+        int size = 0;
+        for (int i = 0; i < rootCount; i++) {
+            if (!detached[roots[i]]) {
+                detached[roots[i]] = true;
+                subtree[size++] = roots[i];
+            }
+        }
+        for (int j = 0; j < size; j++) {
+            int vertex = subtree[j];
+            for (int c = childOffsets[vertex]; c < childOffsets[vertex + 1]; c++) {
+                if (!detached[children[c]]) {
+                    detached[children[c]] = true;
+                    subtree[size++] = children[c];
+                }
+            }
+        }
+        return Arrays.copyOf(subtree, size);
+    }
+
+    boolean isReachable(int vertex) {
+        return distances[vertex] != Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,41 @@
+package roadgraph;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used forward shortest path trees of one graph snapshot
+ */
+final class ShortestPathTreeCache {
+
+    private final Map<Integer, ShortestPathTree> trees;
+
+    ShortestPathTreeCache(int capacity) {
+        trees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the tree of the root, or null if it is not cached
+     */
+    synchronized ShortestPathTree get(int root) {
+        return trees.get(root);
+    }
+
+    synchronized void put(ShortestPathTree tree) {
+        trees.put(tree.root, tree);
+    }
+
+    /**
+     * Returns the cached trees from the least to the most recently used
+     */
+    synchronized List<ShortestPathTree> trees() {
+        return new ArrayList<>(trees.values());
+    }
+}
@@ -0,0 +1,120 @@
+package roadgraph;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of the open roads, by an iterative Tarjan's algorithm
+ * over the CSR arrays.
+ * <p>
+ * Components are numbered in the order Tarjan's algorithm completes them, a reverse
+ * topological order of the condensation: roads between different components always lead
+ * to a smaller number. A goal whose component has a larger number than the start's is
+ * therefore unreachable, which is decided without searching. Goals in smaller numbered
+ * components may or may not be reachable.
+ */
+final class StronglyConnectedComponents {
+
+    private static final int UNVISITED = -1;
+
+    private final int[] components;
+    private final int[] sizes;
+
+    StronglyConnectedComponents(CompactGraph graph) {
+        int n = graph.vertexCount();
+        components = new int[n];
+        Arrays.fill(components, UNVISITED);
+        int[] indices = new int[n];
+        Arrays.fill(indices, UNVISITED);
+        int[] lowLinks = new int[n];
+        // vertices visited but not yet assigned to a component, Tarjan's stack
+        int[] open = new int[n];
+        int openSize = 0;
+        // depth first search path and the next road to follow from each of its vertices
+        int[] path = new int[n];
+        int[] nextRoads = new int[n];
+        IntList sizes = new IntList();
+        int index = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (indices[root] != UNVISITED) {
+                continue;
+            }
+            int depth = 0;
+            indices[root] = lowLinks[root] = index++;
+            open[openSize++] = root;
+            path[depth++] = root;
+            nextRoads[root] = graph.outOffsets[root];
+
+            while (depth > 0) {
+                int v = path[depth - 1];
+                if (nextRoads[v] < graph.outOffsets[v + 1]) {
+                    int e = nextRoads[v]++;
+                    int w = graph.outTargets[e];
+                    if (graph.outWeights[e] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    if (indices[w] == UNVISITED) {
+                        indices[w] = lowLinks[w] = index++;
+                        open[openSize++] = w;
+                        path[depth++] = w;
+                        nextRoads[w] = graph.outOffsets[w];
+                    } else if (components[w] == UNVISITED) {
+                        lowLinks[v] = Math.min(lowLinks[v], indices[w]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[v]);
+                }
+                if (lowLinks[v] == indices[v]) {
+                    int component = sizes.size();
+                    int size = 0;
+                    int w;
+                    do {
+                        w = open[--openSize];
+                        components[w] = component;
+                        size++;
+                    } while (w != v);
+                    sizes.add(size);
+                }
+            }
+        }
+        this.sizes = sizes.toArray();
+    }
+
+    int count() {
+        return sizes.length;
+    }
+
+    int component(int vertex) {
+        return components[vertex];
+    }
+
+    int size(int component) {
+        return sizes[component];
+    }
+
+    /**
+     * Returns false if no path leads from the first vertex to the second, true if one may
+     */
+    boolean mayReach(int from, int to) {
+        return components[to] <= components[from];
+    }
+
+    /**
+     * Returns the component with the most vertices, the smallest numbered one of equal
+     * sizes, or -1 for an empty graph
+     */
+    int largest() {
+        int largest = -1;
+        for (int component = 0; component < sizes.length; component++) {
+            if (largest == -1 || sizes[component] > sizes[largest]) {
+                largest = component;
+            }
+        }
+        return largest;
+    }
+}
@@ -0,0 +1,70 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Time-dependent Dijkstra and A*: labels are earliest arrival times and every road is
+ * entered at the arrival time at its start. With FIFO travel time functions the first
+ * label settled for a crossroad is its earliest arrival, exactly as distances in the
+ * static case.
+ */
+final class TimeDependentSearch {
+
+    private TimeDependentSearch() {
+    }
+
+    /**
+     * @param graph      graph weighted by road lengths
+     * @param departure  departure time from the start in minutes
+     * @param aStar      true to guide the search by great-circle distance at the smallest pace
+     * @param visualiser receives every crossroad settled by the search
+     * @return the earliest arriving route, or null if goal is unreachable
+     */
+    static TimedRoute run(CompactGraph graph, TravelTimeFunctions functions, int from, int to,
+                          double departure, boolean aStar, Consumer<GeographicPoint> visualiser) {
+        Heuristic heuristic = aStar ? new GreatCircleHeuristic(graph, to, functions.minPace) : null;
+        SearchWorkspace workspace = graph.forwardWorkspace();
+        SearchQueue queue = workspace.queue();
+
+        workspace.reach(from, departure, from);
+        queue.insertOrDecrease(from, departure);
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            visualiser.accept(graph.crossroad(current));
+            if (current == to) {
+                return buildRoute(graph, from, to, workspace);
+            }
+            double currentTime = workspace.distance(current);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                int neighbour = graph.outTargets[e];
+                double arrival = functions.arrival(e, currentTime);
+                if (arrival < workspace.distance(neighbour)) {
+                    workspace.reach(neighbour, arrival, current);
+                    queue.insertOrDecrease(neighbour, heuristic == null ? arrival : arrival + heuristic.estimate(neighbour));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static TimedRoute buildRoute(CompactGraph graph, int from, int to, SearchWorkspace workspace) {
+        int length = 1;
+        for (int vertex = to; vertex != from; vertex = workspace.parent(vertex)) {
+            length++;
+        }
+        List<GeographicPoint> path = new ArrayList<>(length);
+        double[] arrivalTimes = new double[length];
+        int index = length - 1;
+        for (int vertex = to; index >= 0; vertex = workspace.parent(vertex)) {
+            arrivalTimes[index--] = workspace.distance(vertex);
+            path.add(graph.crossroad(vertex));
+        }
+        Collections.reverse(path);
+        return new TimedRoute(path, arrivalTimes);
+    }
+}
@@ -0,0 +1,54 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.List;
+
+/**
+ * Route found by a time-dependent search with the arrival time at every crossroad
+ */
+public class TimedRoute {
+
+    private final List<GeographicPoint> path;
+    private final double[] arrivalTimes;
+
+    TimedRoute(List<GeographicPoint> path, double[] arrivalTimes) {
+        this.path = path;
+        this.arrivalTimes = arrivalTimes;
+    }
+
+    /**
+     * Returns crossroads of the route including start and goal
+     */
+    public List<GeographicPoint> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the departure time from the start in minutes
+     */
+    public double getDepartureTime() {
+        return arrivalTimes[0];
+    }
+
+    /**
+     * Returns the arrival time at the goal in minutes
+     */
+    public double getArrivalTime() {
+        return arrivalTimes[arrivalTimes.length - 1];
+    }
+
+    /**
+     * Returns the arrival time at the crossroad with the given index on the path in minutes
+     */
+    public double getArrivalTime(int index) {
+        return arrivalTimes[index];
+    }
+
+    @Override
+    public String toString() {
+        return "TimedRoute{crossroads=" + path.size() +
+                " departure=" + getDepartureTime() +
+                " arrival=" + getArrivalTime() + "}";
+    }
+}
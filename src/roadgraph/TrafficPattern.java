@@ -0,0 +1,86 @@
+package roadgraph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Speeds of road types by time of day, the input of time-dependent routing.
+ * <p>
+ * Speeds are given at breakpoints in minutes after midnight and repeat every day. Between
+ * breakpoints the travel time per km changes linearly, so travel times of roads are
+ * piecewise-linear functions of the departure time. Road types without a profile
+ * keep the constant typical speed of {@link RoutingProfile#TRAVEL_TIME}.
+ */
+public class TrafficPattern {
+
+    /**
+     * Length of the repeating period in minutes
+     */
+    public static final double DAY = 24 * 60;
+
+    private final Map<String, double[]> breakpoints = new HashMap<>();
+    private final Map<String, double[]> speeds = new HashMap<>();
+
+    /**
+     * Sets the speed profile of the road type
+     *
+     * @param roadType     road type such as "motorway" or "residential"
+     * @param minutesOfDay strictly increasing breakpoints in [0, DAY)
+     * @param speedsKmh    positive speeds in km/h at the breakpoints
+     * @throws IllegalArgumentException if breakpoints or speeds are invalid
+     */
+    public void setSpeeds(String roadType, double[] minutesOfDay, double[] speedsKmh) {
+        if (minutesOfDay.length == 0 || minutesOfDay.length != speedsKmh.length) {
+            throw new IllegalArgumentException("Speed profile of " + roadType + " needs one speed per breakpoint");
+        }
+        for (int i = 0; i < minutesOfDay.length; i++) {
+            if (minutesOfDay[i] < 0 || minutesOfDay[i] >= DAY || (i > 0 && minutesOfDay[i] <= minutesOfDay[i - 1])) {
+                throw new IllegalArgumentException("Breakpoints of " + roadType + " must increase within a day");
+            }
+            if (!(speedsKmh[i] > 0) || speedsKmh[i] == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException("Speeds of " + roadType + " must be positive");
+            }
+        }
+        breakpoints.put(roadType, minutesOfDay.clone());
+        speeds.put(roadType, speedsKmh.clone());
+    }
+
+    /**
+     * Returns breakpoints of the road type, or null if it has no profile
+     */
+    double[] breakpoints(String roadType) {
+        return breakpoints.get(roadType);
+    }
+
+    /**
+     * Returns speeds of the road type at its breakpoints, or null if it has no profile
+     */
+    double[] speeds(String roadType) {
+        return speeds.get(roadType);
+    }
+
+    /**
+     * Returns a pattern with morning and evening rush hours slowing down major roads
+     */
+    public static TrafficPattern typical() {
+        TrafficPattern pattern = new TrafficPattern();
+        double[] hours = {0, 6 * 60, 8 * 60, 10 * 60, 16 * 60, 18 * 60, 20 * 60};
+        double[] rushHours = {1, 1, 0.45, 1, 1, 0.4, 1};
+        double[] minorRushHours = {1, 1, 0.7, 1, 1, 0.65, 1};
+        for (String roadType : new String[]{"motorway", "motorway_link", "trunk", "trunk_link", "primary", "primary_link"}) {
+            pattern.setSpeeds(roadType, hours, scale(rushHours, RoutingProfile.speed(roadType)));
+        }
+        for (String roadType : new String[]{"secondary", "secondary_link", "tertiary", "tertiary_link"}) {
+            pattern.setSpeeds(roadType, hours, scale(minorRushHours, RoutingProfile.speed(roadType)));
+        }
+        return pattern;
+    }
+
+    private static double[] scale(double[] factors, double speed) {
+        double[] scaled = new double[factors.length];
+        for (int i = 0; i < factors.length; i++) {
+            scaled[i] = factors[i] * speed;
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,129 @@
+package roadgraph;
+
+/**
+ * Piecewise-linear travel time functions of all roads of a graph for one
+ * {@link TrafficPattern}.
+ * <p>
+ * The travel time of a road is its length times the pace (minutes per km) of its road
+ * type at the departure time, so one pace function per interned road type serves all
+ * roads. Breakpoints and paces of all types are packed into two shared arrays, type t
+ * occupying offsets[t]..offsets[t + 1]-1, and memory depends on the number of road
+ * types and breakpoints only.
+ * <p>
+ * Time-dependent Dijkstra needs the FIFO property: departing later never means arriving
+ * earlier. It holds for a road if its length times the steepest decline of the pace stays
+ * at most 1. For road types where the longest road breaks it, arrivals are evaluated
+ * with waiting allowed, taking the earliest arrival over all later departures, which
+ * restores the property.
+ */
+final class TravelTimeFunctions {
+
+    private final CompactGraph graph;
+    private final double[] times;
+    private final double[] paces;
+    private final int[] offsets;
+    private final boolean[] fifo;
+    /**
+     * Smallest pace of any road type at any time, scales great-circle distances to lower
+     * bounds of travel times
+     */
+    final double minPace;
+
+    /**
+     * @param graph graph weighted by road lengths
+     */
+    TravelTimeFunctions(CompactGraph graph, TrafficPattern pattern) {
+        this.graph = graph;
+        int types = graph.roadTypes.length;
+        offsets = new int[types + 1];
+        for (int type = 0; type < types; type++) {
+            double[] breakpoints = pattern.breakpoints(graph.roadTypes[type]);
+            offsets[type + 1] = offsets[type] + (breakpoints == null ? 1 : breakpoints.length);
+        }
+
+        times = new double[offsets[types]];
+        paces = new double[offsets[types]];
+        fifo = new boolean[types];
+        double smallestPace = Double.POSITIVE_INFINITY;
+        for (int type = 0; type < types; type++) {
+            String roadType = graph.roadTypes[type];
+            double[] breakpoints = pattern.breakpoints(roadType);
+            double[] speeds = pattern.speeds(roadType);
+            if (breakpoints == null) {
+                breakpoints = new double[]{0};
+                speeds = new double[]{RoutingProfile.speed(roadType)};
+            }
+            double maxDecline = 0;
+            for (int i = 0; i < breakpoints.length; i++) {
+                times[offsets[type] + i] = breakpoints[i];
+                paces[offsets[type] + i] = 60 / speeds[i];
+                smallestPace = Math.min(smallestPace, 60 / speeds[i]);
+                int next = (i + 1) % breakpoints.length;
+                double span = next > i ? breakpoints[next] - breakpoints[i] : breakpoints[next] + TrafficPattern.DAY - breakpoints[i];
+                maxDecline = Math.max(maxDecline, (60 / speeds[i] - 60 / speeds[next]) / span);
+            }
+            fifo[type] = graph.maxRoadLengths[type] * maxDecline <= 1;
+        }
+        minPace = types == 0 ? 0 : smallestPace;
+    }
+
+    /**
+     * Returns the earliest arrival time at the end of the road when entering it at the time
+     *
+     * @param edge forward edge id
+     * @param time entering time in minutes, may exceed one day
+     */
+    double arrival(int edge, double time) {
+        int type = graph.outRoadTypes[edge];
+        double length = graph.outWeights[edge];
+        double arrival = time + length * pace(type, time);
+        if (fifo[type]) {
+            return arrival;
+        }
+        // leaving time + travel time is piecewise linear with the same breakpoints,
+        // so the best later departure within a day is one of them
+        double dayStart = time - timeOfDay(time);
+        for (int i = offsets[type]; i < offsets[type + 1]; i++) {
+            double departure = dayStart + times[i];
+            if (departure <= time) {
+                departure += TrafficPattern.DAY;
+            }
+            arrival = Math.min(arrival, departure + length * paces[i]);
+        }
+        return arrival;
+    }
+
+    /**
+     * Returns minutes per km on roads of the type at the time, interpolated linearly
+     * between breakpoints and across midnight
+     */
+    double pace(int type, double time) {
+        int start = offsets[type];
+        int end = offsets[type + 1];
+        if (end - start == 1) {
+            return paces[start];
+        }
+        double t = timeOfDay(time);
+        // first breakpoint after t
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= t) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int before = low == start ? end - 1 : low - 1;
+        int after = low == end ? start : low;
+        double beforeTime = low == start ? times[before] - TrafficPattern.DAY : times[before];
+        double afterTime = low == end ? times[after] + TrafficPattern.DAY : times[after];
+        return paces[before] + (paces[after] - paces[before]) * (t - beforeTime) / (afterTime - beforeTime);
+    }
+
+    private static double timeOfDay(double time) {
+        double t = time % TrafficPattern.DAY;
+        return t < 0 ? t + TrafficPattern.DAY : t;
+    }
+}
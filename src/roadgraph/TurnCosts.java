@@ -0,0 +1,69 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turn costs and restrictions for turn-aware routing.
+ * <p>
+ * A turn is charged by its angle: a 90 degree left or right turn costs the left or right
+ * turn penalty, other angles proportionally. Turning back onto the road towards the
+ * previous crossroad costs the U-turn penalty instead, positive infinity forbids U-turns.
+ * Penalties are in the unit of road weights, km for the distance profile.
+ */
+public class TurnCosts {
+
+    private final double leftTurnPenalty;
+    private final double rightTurnPenalty;
+    private final double uTurnPenalty;
+    private final Set<List<GeographicPoint>> forbiddenTurns = new HashSet<>();
+    private int version;
+
+    public TurnCosts(double leftTurnPenalty, double rightTurnPenalty, double uTurnPenalty) {
+        if (!(leftTurnPenalty >= 0) || !(rightTurnPenalty >= 0) || !(uTurnPenalty >= 0)) {
+            throw new IllegalArgumentException("Turn penalties must not be negative");
+        }
+        this.leftTurnPenalty = leftTurnPenalty;
+        this.rightTurnPenalty = rightTurnPenalty;
+        this.uTurnPenalty = uTurnPenalty;
+    }
+
+    /**
+     * Forbids turning at the via crossroad from the road coming from the first crossroad
+     * to the road going to the last one, e.g. "no left turn"
+     */
+    public synchronized void forbidTurn(GeographicPoint from, GeographicPoint via, GeographicPoint to) {
+        if (forbiddenTurns.add(Arrays.asList(from, via, to))) {
+            version++;
+        }
+    }
+
+    synchronized boolean isForbidden(GeographicPoint from, GeographicPoint via, GeographicPoint to) {
+        return !forbiddenTurns.isEmpty() && forbiddenTurns.contains(Arrays.asList(from, via, to));
+    }
+
+    /**
+     * Returns the number of restrictions changes, turn graphs built for an older version are stale
+     */
+    synchronized int version() {
+        return version;
+    }
+
+    /**
+     * Returns the cost of turning by the angle
+     *
+     * @param angle heading change in radians, positive to the left
+     * @param uTurn true if the turn goes back to the previous crossroad
+     */
+    double cost(double angle, boolean uTurn) {
+        if (uTurn) {
+            return uTurnPenalty;
+        }
+        double quarters = Math.abs(angle) / (Math.PI / 2);
+        return quarters * (angle > 0 ? leftTurnPenalty : rightTurnPenalty);
+    }
+}
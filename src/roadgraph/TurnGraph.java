@@ -0,0 +1,163 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+
+import java.util.function.Consumer;
+
+/**
+ * Edge-expanded (line) graph of a {@link CompactGraph} for turn-aware routing.
+ * <p>
+ * Its vertices are the forward edge ids of the base graph and its arcs are the allowed
+ * turns between consecutive roads, packed in CSR arrays: turns from road e occupy
+ * turnOffsets[e]..turnOffsets[e + 1]-1. A turn weighs the turn cost plus the weight of
+ * the road turned into, forbidden turns have no arc. Only ids and weights are stored,
+ * so the memory is a small multiple of the base graph arrays.
+ * <p>
+ * Turn angles are taken between the straight lines joining the crossroads of each road,
+ * as the graph keeps no road geometry.
+ */
+final class TurnGraph {
+
+    private static final int NO_EDGE = -1;
+
+    final CompactGraph graph;
+    final TurnCosts costs;
+    final int costsVersion;
+    final int[] turnOffsets;
+    final int[] turnTargets;
+    final double[] turnWeights;
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    TurnGraph(CompactGraph graph, TurnCosts costs) {
+        this.graph = graph;
+        this.costs = costs;
+        this.costsVersion = costs.version();
+        int m = graph.edgeCount();
+
+        double[] headings = new double[m];
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+                headings[e] = heading(v, graph.outTargets[e]);
+            }
+        }
+
+        // the first pass counts allowed turns, the second fills them in
+        turnOffsets = new int[m + 1];
+        int[] targets = null;
+        double[] weights = null;
+        for (int pass = 0; pass < 2; pass++) {
+            int turn = 0;
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+                    turnOffsets[e] = turn;
+                    int via = graph.outTargets[e];
+                    for (int next = graph.outOffsets[via]; next < graph.outOffsets[via + 1]; next++) {
+                        int to = graph.outTargets[next];
+                        double cost = costs.cost(angle(headings[e], headings[next]), to == v);
+                        if (cost == Double.POSITIVE_INFINITY
+                                || costs.isForbidden(graph.crossroad(v), graph.crossroad(via), graph.crossroad(to))) {
+                            continue;
+                        }
+                        if (targets != null) {
+                            targets[turn] = next;
+                            weights[turn] = cost + graph.outWeights[next];
+                        }
+                        turn++;
+                    }
+                }
+            }
+            turnOffsets[m] = turn;
+            if (targets == null) {
+                targets = new int[turn];
+                weights = new double[turn];
+            }
+        }
+        turnTargets = targets;
+        turnWeights = weights;
+        workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(m));
+    }
+
+    /**
+     * Returns true if the turn graph still reflects the costs
+     */
+    boolean isCurrent(CompactGraph graph, TurnCosts costs) {
+        return this.graph == graph && this.costs == costs && costsVersion == costs.version();
+    }
+
+    /**
+     * Dijkstra over roads: every road leaving the start is a source, the first settled
+     * road ending at the goal gives the route
+     *
+     * @param visualiser receives the ending crossroad of every settled road
+     * @return vertex ids of the cheapest route, or null if goal is unreachable
+     */
+    int[] search(int from, int to, Consumer<GeographicPoint> visualiser) {
+        if (from == to) {
+            return new int[]{from};
+        }
+        SearchWorkspace workspace = workspaces.get();
+        workspace.reset(graph.queueType());
+        SearchQueue queue = workspace.queue();
+        for (int e = graph.outOffsets[from]; e < graph.outOffsets[from + 1]; e++) {
+            if (graph.outWeights[e] < workspace.distance(e)) {
+                workspace.reach(e, graph.outWeights[e], NO_EDGE);
+                queue.insertOrDecrease(e, graph.outWeights[e]);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int current = queue.extractMin();
+            visualiser.accept(graph.crossroad(graph.outTargets[current]));
+            if (graph.outTargets[current] == to) {
+                return buildPath(from, current, workspace);
+            }
+            double currentDistance = workspace.distance(current);
+            for (int turn = turnOffsets[current]; turn < turnOffsets[current + 1]; turn++) {
+                int next = turnTargets[turn];
+                double distance = currentDistance + turnWeights[turn];
+                if (distance < workspace.distance(next)) {
+                    workspace.reach(next, distance, current);
+                    queue.insertOrDecrease(next, distance);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] buildPath(int from, int last, SearchWorkspace workspace) {
+        int length = 1;
+        for (int e = last; e != NO_EDGE; e = workspace.parent(e)) {
+            length++;
+        }
+        int[] path = new int[length];
+        path[0] = from;
+        int index = length - 1;
+        for (int e = last; e != NO_EDGE; e = workspace.parent(e)) {
+            path[index--] = graph.outTargets[e];
+        }
+        return path;
+    }
+
+    /**
+     * Returns the direction from source to target in radians, counterclockwise from east,
+     * on a local plane with longitudes scaled by the cosine of latitude
+     */
+    private double heading(int source, int target) {
+        double north = graph.latitudes[target] - graph.latitudes[source];
+        double east = (graph.longitudes[target] - graph.longitudes[source]) * graph.latitudeCosines[source];
+        return Math.atan2(north, east);
+    }
+
+    /**
+     * Returns the heading change in (-pi, pi], positive to the left
+     */
+    private static double angle(double fromHeading, double toHeading) {
+        double angle = toHeading - fromHeading;
+        if (angle > Math.PI) {
+            angle -= 2 * Math.PI;
+        } else if (angle <= -Math.PI) {
+            angle += 2 * Math.PI;
+        }
+        return angle;
+    }
+}
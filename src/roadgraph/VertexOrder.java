@@ -0,0 +1,22 @@
+package roadgraph;
+
+/**
+ * Numberings of crossroads in the frozen graph of {@link MapGraph}. Searches read the
+ * arrays of neighbouring crossroads together, which hit the same cache lines more often
+ * when neighbours have close numbers.
+ */
+public enum VertexOrder {
+    /**
+     * Order in which the crossroads map iterates them, scattered over the map
+     */
+    LOADED,
+    /**
+     * Order along a Hilbert curve over latitude and longitude, close crossroads get close numbers
+     */
+    HILBERT,
+    /**
+     * Reverse Cuthill-McKee order, breadth first over the roads from a peripheral crossroad,
+     * which keeps the numbers of the ends of every road close
+     */
+    REVERSE_CUTHILL_MCKEE
+}
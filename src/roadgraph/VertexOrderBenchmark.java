@@ -0,0 +1,172 @@
+package roadgraph;
+
+import geography.GeographicPoint;
+import util.GraphLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares vertex orders of the frozen graph on every given map: how far apart the
+ * numbers of road ends are, cache misses of complete Dijkstra searches, and query
+ * latency of several algorithms on the same random crossroad pairs.
+ * <p>
+ * The sample maps fit into any hardware cache, so misses are counted on a simulated
+ * fully associative LRU cache of {@link #CACHE_LINES} 64 byte lines, replaying the reads
+ * Dijkstra makes from the offset, target, weight and distance arrays.
+ * <p>
+ * Arguments: map files (default data/maps/new_york.map and data/maps/san_diego.map).
+ */
+public class VertexOrderBenchmark {
+
+    private static final int CACHE_LINES = 64;
+    private static final int LINE_BYTES = 64;
+    private static final int QUERIES = 2000;
+    private static final int TREES = 100;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final SearchAlgorithm[] ALGORITHMS = {SearchAlgorithm.DIJKSTRA, SearchAlgorithm.A_STAR,
+            SearchAlgorithm.BIDIRECTIONAL_A_STAR, SearchAlgorithm.CONTRACTION_HIERARCHY};
+
+    public static void main(String[] args) {
+        String[] files = args.length > 0 ? args : new String[]{"data/maps/new_york.map", "data/maps/san_diego.map"};
+        for (String file : files) {
+            MapGraph map = new MapGraph();
+            GraphLoader.loadRoadMap(file, map);
+            List<GeographicPoint> crossroads = new ArrayList<>(map.getVertices());
+            crossroads.sort((a, b) -> a.getX() != b.getX() ? Double.compare(a.getX(), b.getX())
+                    : Double.compare(a.getY(), b.getY()));
+            Random random = new Random(42);
+            GeographicPoint[][] pairs = new GeographicPoint[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                pairs[i] = new GeographicPoint[]{crossroads.get(random.nextInt(crossroads.size())),
+                        crossroads.get(random.nextInt(crossroads.size()))};
+            }
+            System.out.println(file + ": " + map.getNumVertices() + " crossroads, " + map.getNumEdges() + " roads");
+
+            for (VertexOrder order : VertexOrder.values()) {
+                map.setVertexOrder(order);
+                CompactGraph graph = map.freeze();
+                StringBuilder line = new StringBuilder(String.format("%-22s gap %7.1f, misses %7.1f per tree",
+                        order, meanRoadGap(graph), missesPerTree(graph, pairs)));
+                for (SearchAlgorithm algorithm : ALGORITHMS) {
+                    line.append(String.format(", %s %.1f us", algorithm, latency(map, algorithm, pairs)));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Returns the mean difference of the numbers of the two ends of a road
+     */
+    private static double meanRoadGap(CompactGraph graph) {
+        long gap = 0;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+                gap += Math.abs(graph.outTargets[e] - v);
+            }
+        }
+        return graph.edgeCount() == 0 ? 0 : (double) gap / graph.edgeCount();
+    }
+
+    /**
+     * Returns the mean simulated cache misses of complete Dijkstra searches from the
+     * starts of the first pairs
+     */
+    private static double missesPerTree(CompactGraph graph, GeographicPoint[][] pairs) {
+        long misses = 0;
+        for (int i = 0; i < TREES; i++) {
+            misses += tracedDijkstra(graph, idOf(graph, pairs[i][0]));
+        }
+        return (double) misses / TREES;
+    }
+
+    private static int idOf(CompactGraph graph, GeographicPoint point) {
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (graph.crossroads[v].equals(point)) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("No crossroad at " + point);
+    }
+
+    /**
+     * Runs Dijkstra from the root and returns the misses of its array reads
+     */
+    private static long tracedDijkstra(CompactGraph graph, int root) {
+        Cache cache = new Cache();
+        double[] distances = new double[graph.vertexCount()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        IndexedMinHeap heap = new IndexedMinHeap(graph.vertexCount());
+        distances[root] = 0;
+        heap.insertOrDecrease(root, 0);
+        while (!heap.isEmpty()) {
+            int current = heap.extractMin();
+            cache.read(0, current, Integer.BYTES);
+            for (int e = graph.outOffsets[current]; e < graph.outOffsets[current + 1]; e++) {
+                cache.read(1, e, Integer.BYTES);
+                cache.read(2, e, Double.BYTES);
+                int neighbour = graph.outTargets[e];
+                cache.read(3, neighbour, Double.BYTES);
+                double distance = distances[current] + graph.outWeights[e];
+                if (distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    heap.insertOrDecrease(neighbour, distance);
+                }
+            }
+        }
+        return cache.misses;
+    }
+
+    /**
+     * @return mean time per query in microseconds, of the fastest round
+     */
+    private static double latency(MapGraph map, SearchAlgorithm algorithm, GeographicPoint[][] pairs) {
+        List<RouteQuery> queries = new ArrayList<>(pairs.length);
+        for (GeographicPoint[] pair : pairs) {
+            queries.add(new RouteQuery(pair[0], pair[1]));
+        }
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            map.routeBatch(queries, algorithm);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long time = 0;
+            for (RouteResult result : map.routeBatch(queries, algorithm)) {
+                time += result.getLatencyNanos();
+            }
+            best = Math.min(best, time);
+        }
+        return best / 1e3 / pairs.length;
+    }
+
+    /**
+     * Fully associative cache with least recently used replacement
+     */
+    private static final class Cache {
+
+        /**
+         * Cached lines in access order, the least recently used first
+         */
+        private final LinkedHashMap<Long, Boolean> lines = new LinkedHashMap<>(CACHE_LINES * 2, 0.75f, true);
+        long misses;
+
+        void read(int array, int index, int bytes) {
+            long line = (long) array << 40 | (long) index * bytes / LINE_BYTES;
+            if (lines.get(line) == null) {
+                misses++;
+                lines.put(line, Boolean.TRUE);
+                if (lines.size() > CACHE_LINES) {
+                    Iterator<Long> eldest = lines.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+    }
+}
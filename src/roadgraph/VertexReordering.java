@@ -0,0 +1,202 @@
+package roadgraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Renumbering of crossroads before the frozen graph is built. The graph numbers its
+ * vertices in the order of the given crossroads, so sorting them here permutes every
+ * per-vertex array of the graph at once.
+ */
+final class VertexReordering {
+
+    /**
+     * Cells per side of the grid the Hilbert curve runs through
+     */
+    private static final int HILBERT_ORDER = 16;
+
+    private VertexReordering() {
+    }
+
+    /**
+     * Returns the crossroads in the given order, ties broken by their coordinates so the
+     * numbering does not depend on map iteration
+     */
+    static Crossroad[] order(Collection<Crossroad> crossroads, VertexOrder order) {
+        Crossroad[] vertices = crossroads.toArray(new Crossroad[0]);
+        switch (order) {
+            case LOADED:
+                return vertices;
+            case HILBERT:
+                return hilbert(vertices);
+            case REVERSE_CUTHILL_MCKEE:
+                return reverseCuthillMcKee(vertices);
+            default:
+                throw new IllegalArgumentException("Unsupported vertex order: " + order);
+        }
+    }
+
+    private static Crossroad[] hilbert(Crossroad[] vertices) {
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Crossroad vertex : vertices) {
+            minX = Math.min(minX, vertex.getX());
+            maxX = Math.max(maxX, vertex.getX());
+            minY = Math.min(minY, vertex.getY());
+            maxY = Math.max(maxY, vertex.getY());
+        }
+        int cells = 1 << HILBERT_ORDER;
+        double scaleX = (cells - 1) / Math.max(maxX - minX, Double.MIN_NORMAL);
+        double scaleY = (cells - 1) / Math.max(maxY - minY, Double.MIN_NORMAL);
+
+        long[] keys = new long[vertices.length];
+        for (int v = 0; v < vertices.length; v++) {
+            int x = (int) ((vertices[v].getX() - minX) * scaleX);
+            int y = (int) ((vertices[v].getY() - minY) * scaleY);
+            keys[v] = hilbertIndex(x, y, cells);
+        }
+        Integer[] order = new Integer[vertices.length];
+        for (int v = 0; v < order.length; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(v -> keys[v])
+                .thenComparingDouble(v -> vertices[v].getX())
+                .thenComparingDouble(v -> vertices[v].getY()));
+        Crossroad[] sorted = new Crossroad[vertices.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = vertices[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the distance of the cell along the Hilbert curve through the grid
+     */
+    static long hilbertIndex(int x, int y, int cells) {
+        long index = 0;
+        for (int half = cells / 2; half > 0; half /= 2) {
+            int right = (x & half) > 0 ? 1 : 0;
+            int up = (y & half) > 0 ? 1 : 0;
+            index += (long) half * half * ((3 * right) ^ up);
+            // rotate the quadrant so the curve enters and leaves it at the right corners
+            if (up == 0) {
+                if (right == 1) {
+                    x = half - 1 - x;
+                    y = half - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Cuthill-McKee numbering of every component of the undirected road graph, reversed.
+     * Each component starts from a pseudo-peripheral crossroad, the last one reached by a
+     * breadth first search from its first crossroad, and visits neighbours by increasing
+     * degree.
+     */
+    private static Crossroad[] reverseCuthillMcKee(Crossroad[] vertices) {
+        Arrays.sort(vertices, Comparator.comparingDouble(Crossroad::getX).thenComparingDouble(Crossroad::getY));
+        int n = vertices.length;
+        for (int v = 0; v < n; v++) {
+            vertices[v].setId(v);
+        }
+        int[][] neighbours = new int[n][];
+        for (int v = 0; v < n; v++) {
+            neighbours[v] = neighbours(vertices[v]);
+        }
+
+        int[] stamps = new int[n];
+        int[] queue = new int[n];
+        boolean[] numbered = new boolean[n];
+        Crossroad[] order = new Crossroad[n];
+        int count = 0;
+        int stamp = 0;
+        for (int seed = 0; seed < n; seed++) {
+            if (numbered[seed]) {
+                continue;
+            }
+            stamp++;
+            int tail = breadthFirst(neighbours, seed, stamps, stamp, queue, false);
+            int start = queue[tail - 1];
+            stamp++;
+            tail = breadthFirst(neighbours, start, stamps, stamp, queue, true);
+            for (int i = 0; i < tail; i++) {
+                numbered[queue[i]] = true;
+                order[n - 1 - count++] = vertices[queue[i]];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Fills the queue with the component of the root in breadth first order
+     *
+     * @param byDegree visit the neighbours of a crossroad by increasing degree
+     * @return the number of crossroads in the queue
+     */
+    private static int breadthFirst(int[][] neighbours, int root, int[] stamps, int stamp, int[] queue,
+                                    boolean byDegree) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        stamps[root] = stamp;
+        while (head < tail) {
+            int current = queue[head++];
+            int first = tail;
+            for (int neighbour : neighbours[current]) {
+                if (stamps[neighbour] != stamp) {
+                    stamps[neighbour] = stamp;
+                    queue[tail++] = neighbour;
+                }
+            }
+            if (byDegree) {
+                sortByDegree(neighbours, queue, first, tail);
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Insertion sort, crossroads have few neighbours
+     */
+    private static void sortByDegree(int[][] neighbours, int[] queue, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int vertex = queue[i];
+            int j = i;
+            while (j > from && neighbours[queue[j - 1]].length > neighbours[vertex].length) {
+                queue[j] = queue[j - 1];
+                j--;
+            }
+            queue[j] = vertex;
+        }
+    }
+
+    /**
+     * Returns the distinct other ends of the roads into and out of the crossroad
+     */
+    private static int[] neighbours(Crossroad crossroad) {
+        IntList ends = new IntList();
+        for (Road road : crossroad.getOutRoads()) {
+            ends.add(road.getToCrossroad().getId());
+        }
+        for (Road road : crossroad.getInRoads()) {
+            ends.add(road.getFromCrossroad().getId());
+        }
+        int[] sorted = ends.toArray();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] != crossroad.getId() && (count == 0 || sorted[i] != sorted[count - 1])) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}